@@ -0,0 +1,296 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Agenda view for EventsGridActivity: event rows grouped under day headers.
+ *
+ * - Pages arrive from AgendaPager in chronological order. Headers are added
+ *   only where a page crosses into a new day, comparing against the row next
+ *   to it, so loading a page never regroups the rows already loaded.
+ * - {@link StickyHeaderDecoration} pins the current day's header to the top.
+ * - Every item (header or row) has a day key and items are in day order, so
+ *   {@link #positionOfDay(long)} is a binary search.
+ */
+public class AgendaAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    static final int TYPE_HEADER = 0;
+    static final int TYPE_EVENT = 1;
+
+    // Header ids live far below event ids (which are positive)
+    private static final long HEADER_ID_BASE = Long.MIN_VALUE / 2;
+
+    private static final String[] MONTHS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun",
+            "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+    private static final String[] WEEKDAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    private static final int HEADER_BACKGROUND = 0xFFE8EAF6;
+
+    // DayHeader or EventsGridActivity.EventRow, in (day, time, id) order
+    private final List<Object> items = new ArrayList<>();
+    private final EventsAdapter.OnRowActionListener listener;
+
+    public AgendaAdapter(EventsAdapter.OnRowActionListener listener) {
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Add a page that continues after the last loaded row.
+     */
+    public void append(List<EventsGridActivity.EventRow> page) {
+        int start = items.size();
+        long day = items.isEmpty() ? DateTimeCodec.NO_DAY : dayKeyAt(start - 1);
+        for (EventsGridActivity.EventRow row : page) {
+            if (row.dayKey != day) {
+                day = row.dayKey;
+                items.add(new DayHeader(day));
+            }
+            items.add(row);
+        }
+        notifyItemRangeInserted(start, items.size() - start);
+    }
+
+    /**
+     * Add a page that ends just before the first loaded row.
+     */
+    public void prepend(List<EventsGridActivity.EventRow> page) {
+        if (page.isEmpty()) return;
+        List<Object> chunk = new ArrayList<>(page.size() + 8);
+        long day = DateTimeCodec.NO_DAY;
+        for (EventsGridActivity.EventRow row : page) {
+            if (row.dayKey != day) {
+                day = row.dayKey;
+                chunk.add(new DayHeader(day));
+            }
+            chunk.add(row);
+        }
+        // The page ends inside the first loaded day: that day's header moves up to the page
+        if (!items.isEmpty() && dayKeyAt(0) == day) {
+            items.remove(0);
+            notifyItemRemoved(0);
+        }
+        items.addAll(0, chunk);
+        notifyItemRangeInserted(0, chunk.size());
+    }
+
+    /**
+     * Replace everything (after a seek or a reload of the loaded range).
+     * Stable ids let RecyclerView keep the rows that are still present in place.
+     */
+    public void replace(List<EventsGridActivity.EventRow> rows) {
+        items.clear();
+        long day = DateTimeCodec.NO_DAY;
+        for (EventsGridActivity.EventRow row : rows) {
+            if (row.dayKey != day) {
+                day = row.dayKey;
+                items.add(new DayHeader(day));
+            }
+            items.add(row);
+        }
+        notifyDataSetChanged();
+    }
+
+    public EventsGridActivity.EventRow firstRow() {
+        // items[0] is always a header
+        return items.size() > 1 ? (EventsGridActivity.EventRow) items.get(1) : null;
+    }
+
+    public EventsGridActivity.EventRow lastRow() {
+        return items.isEmpty() ? null : (EventsGridActivity.EventRow) items.get(items.size() - 1);
+    }
+
+    /**
+     * Position of the first item on or after {@code epochDay}, or -1 if the
+     * loaded range doesn't reach that day.
+     */
+    public int positionOfDay(long epochDay) {
+        int lo = 0;
+        int hi = items.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dayKeyAt(mid) < epochDay) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo < items.size() ? lo : -1;
+    }
+
+    long dayKeyAt(int position) {
+        Object item = items.get(position);
+        return item instanceof DayHeader
+                ? ((DayHeader) item).dayKey
+                : ((EventsGridActivity.EventRow) item).dayKey;
+    }
+
+    DayHeader headerFor(int position) {
+        for (int p = position; p >= 0; p--) {
+            if (items.get(p) instanceof DayHeader) return (DayHeader) items.get(p);
+        }
+        return null;
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return items.get(position) instanceof DayHeader ? TYPE_HEADER : TYPE_EVENT;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        Object item = items.get(position);
+        return item instanceof DayHeader
+                ? HEADER_ID_BASE + ((DayHeader) item).dayKey
+                : ((EventsGridActivity.EventRow) item).id;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == TYPE_HEADER) {
+            return new HeaderHolder(createHeaderView(parent.getContext()));
+        }
+
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.row_event, parent, false);
+        EventsAdapter.ViewHolder holder = new EventsAdapter.ViewHolder(view);
+        holder.btnDelete.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (listener != null && position != RecyclerView.NO_POSITION) {
+                listener.onDeleteClicked((EventsGridActivity.EventRow) items.get(position));
+            }
+        });
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (listener != null && position != RecyclerView.NO_POSITION) {
+                listener.onRowClicked((EventsGridActivity.EventRow) items.get(position));
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        Object item = items.get(position);
+        if (item instanceof DayHeader) {
+            ((HeaderHolder) holder).label.setText(((DayHeader) item).label);
+            return;
+        }
+        EventsGridActivity.EventRow row = (EventsGridActivity.EventRow) item;
+        EventsAdapter.ViewHolder eventHolder = (EventsAdapter.ViewHolder) holder;
+        eventHolder.tvName.setText(row.name);
+        eventHolder.tvDate.setText(row.date);
+        eventHolder.tvTime.setText(row.time);
+        EventsAdapter.bindSyncBadge(eventHolder, row);
+    }
+
+    static TextView createHeaderView(Context context) {
+        float density = context.getResources().getDisplayMetrics().density;
+        int padding = (int) (8 * density);
+        TextView label = new TextView(context);
+        label.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        label.setPadding(padding * 2, padding, padding * 2, padding);
+        label.setTypeface(Typeface.DEFAULT_BOLD);
+        label.setBackgroundColor(HEADER_BACKGROUND);
+        return label;
+    }
+
+    /**
+     * One day section; the label is formatted once, when the header is created.
+     */
+    static final class DayHeader {
+        final long dayKey;
+        final String label;
+
+        DayHeader(long dayKey) {
+            this.dayKey = dayKey;
+            int[] ymd = DateTimeCodec.civilFromDays(dayKey);
+            // 1970-01-01 was a Thursday
+            this.label = WEEKDAYS[(int) Math.floorMod(dayKey + 3, 7L)] + ", "
+                    + MONTHS[ymd[1] - 1] + " " + ymd[2] + ", " + ymd[0];
+        }
+    }
+
+    static class HeaderHolder extends RecyclerView.ViewHolder {
+        final TextView label;
+
+        HeaderHolder(TextView label) {
+            super(label);
+            this.label = label;
+        }
+    }
+
+    /**
+     * Draws the header of the day at the top of the list over the first rows,
+     * pushed up by the next day's header as it scrolls in.
+     */
+    public static class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+        private final AgendaAdapter adapter;
+        private TextView sticky;
+        private long stickyDay = DateTimeCodec.NO_DAY;
+        private int stickyWidth;
+
+        public StickyHeaderDecoration(AgendaAdapter adapter) {
+            this.adapter = adapter;
+        }
+
+        @Override
+        public void onDrawOver(Canvas canvas, RecyclerView parent, RecyclerView.State state) {
+            if (parent.getAdapter() != adapter || parent.getChildCount() == 0) return;
+            int position = parent.getChildAdapterPosition(parent.getChildAt(0));
+            if (position == RecyclerView.NO_POSITION) return;
+            DayHeader header = adapter.headerFor(position);
+            if (header == null) return;
+
+            if (sticky == null) {
+                sticky = createHeaderView(parent.getContext());
+            }
+            // Re-measure only when the day or the list width changes
+            if (header.dayKey != stickyDay || parent.getWidth() != stickyWidth) {
+                stickyDay = header.dayKey;
+                stickyWidth = parent.getWidth();
+                sticky.setText(header.label);
+                sticky.measure(
+                        View.MeasureSpec.makeMeasureSpec(stickyWidth, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+                sticky.layout(0, 0, stickyWidth, sticky.getMeasuredHeight());
+            }
+
+            int height = sticky.getHeight();
+            int offset = 0;
+            for (int i = 1; i < parent.getChildCount(); i++) {
+                View child = parent.getChildAt(i);
+                if (child.getTop() >= height) break;
+                int childPosition = parent.getChildAdapterPosition(child);
+                if (childPosition != RecyclerView.NO_POSITION
+                        && adapter.getItemViewType(childPosition) == TYPE_HEADER) {
+                    offset = Math.min(0, child.getTop() - height);
+                    break;
+                }
+            }
+
+            canvas.save();
+            canvas.translate(0, offset);
+            sticky.draw(canvas);
+            canvas.restore();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.projectthree_sunnynguyen;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the agenda in pages around a date, in both directions.
+ *
+ * - {@link #seek(long)} starts at a date with an index lookup on day_key, so
+ *   jumping months ahead costs one page query, not a scroll through the months.
+ * - Scrolling near either end loads the next/previous page (keyset paging on
+ *   day_key, time, id); AgendaAdapter adds day headers for the new rows only.
+ * - While active, a change to the events table reloads just the loaded day range.
+ */
+final class AgendaPager implements InvalidationTracker.Observer {
+
+    private static final int PAGE_SIZE = 50;
+    // Load more when the user is within this many items of a loaded end
+    private static final int PREFETCH_DISTANCE = 15;
+
+    private final EventRepository repository;
+    private final AgendaAdapter adapter;
+    private final LinearLayoutManager layoutManager;
+    private final Executor mainThread;
+
+    private long anchorDay;
+    private boolean active;
+    private boolean loadingForward, loadingBackward;
+    private boolean startReached, endReached;
+    // Bumped by seek() and reload(): results of loads started before are dropped
+    private int generation;
+
+    AgendaPager(EventRepository repository, AgendaAdapter adapter,
+                LinearLayoutManager layoutManager, Executor mainThread) {
+        this.repository = repository;
+        this.mainThread = mainThread;
+        this.adapter = adapter;
+        this.layoutManager = layoutManager;
+    }
+
+    /**
+     * Follow table changes while the agenda is on screen.
+     */
+    void setActive(boolean active) {
+        if (this.active == active) return;
+        this.active = active;
+        if (active) {
+            InvalidationTracker.getInstance().addObserver(DatabaseHelper.TABLE_EVENTS, this);
+        } else {
+            InvalidationTracker.getInstance().removeObserver(DatabaseHelper.TABLE_EVENTS, this);
+        }
+    }
+
+    /**
+     * Show the agenda from {@code epochDay}: scrolls if that day is already
+     * loaded, otherwise drops the loaded pages and loads a page starting there.
+     */
+    void seek(long epochDay) {
+        int loaded = adapter.positionOfDay(epochDay);
+        if (loaded >= 0 && (loaded > 0 || startReached)) {
+            layoutManager.scrollToPositionWithOffset(loaded, 0);
+            return;
+        }
+
+        int seekGeneration = ++generation;
+        anchorDay = epochDay;
+        startReached = endReached = false;
+        loadingForward = true;
+        loadingBackward = false;
+        // ("", MIN_VALUE) sorts before every row of the day, so the page starts at its first event
+        repository.loadEventRowsPage(epochDay, "", Long.MIN_VALUE, true, PAGE_SIZE, rows -> {
+            if (seekGeneration != generation) return;
+            loadingForward = false;
+            endReached = rows.size() < PAGE_SIZE;
+            adapter.replace(rows);
+            layoutManager.scrollToPositionWithOffset(0, 0);
+            loadBackward();
+        });
+    }
+
+    /**
+     * Called from the list's scroll listener with the visible positions.
+     */
+    void onScrolled(int firstVisible, int lastVisible) {
+        if (firstVisible < 0) return;
+        if (lastVisible >= adapter.getItemCount() - PREFETCH_DISTANCE) loadForward();
+        if (firstVisible <= PREFETCH_DISTANCE) loadBackward();
+    }
+
+    private void loadForward() {
+        if (loadingForward || endReached) return;
+        loadingForward = true;
+        int loadGeneration = generation;
+        EventsGridActivity.EventRow last = adapter.lastRow();
+        EventRepository.Callback<List<EventsGridActivity.EventRow>> onPage = rows -> {
+            if (loadGeneration != generation) return;
+            loadingForward = false;
+            endReached = rows.size() < PAGE_SIZE;
+            adapter.append(rows);
+        };
+        if (last == null) {
+            repository.loadEventRowsPage(anchorDay, "", Long.MIN_VALUE, true, PAGE_SIZE, onPage);
+        } else {
+            repository.loadEventRowsPage(last.dayKey, last.time, last.id, true, PAGE_SIZE, onPage);
+        }
+    }
+
+    private void loadBackward() {
+        if (loadingBackward || startReached) return;
+        loadingBackward = true;
+        int loadGeneration = generation;
+        EventsGridActivity.EventRow first = adapter.firstRow();
+        EventRepository.Callback<List<EventsGridActivity.EventRow>> onPage = rows -> {
+            if (loadGeneration != generation) return;
+            loadingBackward = false;
+            startReached = rows.size() < PAGE_SIZE;
+            adapter.prepend(rows);
+        };
+        if (first == null) {
+            repository.loadEventRowsPage(anchorDay, "", Long.MIN_VALUE, false, PAGE_SIZE, onPage);
+        } else {
+            repository.loadEventRowsPage(first.dayKey, first.time, first.id, false, PAGE_SIZE,
+                    onPage);
+        }
+    }
+
+    @Override
+    public void onInvalidated(String table) {
+        // Called on the writing thread
+        mainThread.execute(this::reload);
+    }
+
+    // Re-read the loaded day range; open ends extend to cover rows added beyond them
+    private void reload() {
+        if (!active) return;
+        EventsGridActivity.EventRow first = adapter.firstRow();
+        EventsGridActivity.EventRow last = adapter.lastRow();
+        if (first == null) {
+            seek(anchorDay);
+            return;
+        }
+        long fromDay = startReached ? Long.MIN_VALUE : first.dayKey;
+        long toDay = endReached ? Long.MAX_VALUE : last.dayKey + 1;
+        // Pages in flight would overlap the reloaded range: drop them and hold new ones
+        int loadGeneration = ++generation;
+        loadingForward = loadingBackward = true;
+        repository.loadEventRowsInRange(fromDay, toDay, rows -> {
+            if (loadGeneration != generation) return;
+            loadingForward = loadingBackward = false;
+            adapter.replace(rows);
+        });
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AgendaSnapshot is a small binary file holding the first {@link #MAX_ROWS}
+ * rows of the event list, i.e. what a launch shows above the fold. It lets
+ * a cold launch show events before SQLite is opened: reading is a memory
+ * map plus a linear decode of a few KB, no matter how large the database is.
+ *
+ * - Rewritten on the DB thread after every change to the events table,
+ *   from one indexed, limited query. Writes go to a temp file that is then
+ *   renamed, so readers never see a partial snapshot.
+ * - The UI treats it as a first draft. EventRepository shows it, then the
+ *   live list replaces it, and DiffUtil reconciles the two.
+ *
+ * Layout (big-endian):
+ *   header:  magic 'AGSN', int formatVersion, long writtenAt, int count
+ *   row:     long id, long dayKey, then name, date, time, syncStatus
+ *   string:  unsigned short byteLength, then UTF-8 bytes
+ */
+final class AgendaSnapshot implements InvalidationTracker.Observer {
+
+    private static final String TAG = "AgendaSnapshot";
+
+    static final int MAX_ROWS = 50;
+
+    private static final String FILE_NAME = "agenda.snapshot";
+    private static final int MAGIC = 0x4147534E; // "AGSN"
+    private static final int FORMAT_VERSION = 1;
+
+    private final File file;
+    private final DatabaseHelper db;
+    private final Executor dbExecutor;
+    private final AtomicBoolean writeQueued = new AtomicBoolean(false);
+
+    AgendaSnapshot(Context context, Executor dbExecutor) {
+        Context appContext = context.getApplicationContext();
+        this.file = new File(appContext.getFilesDir(), FILE_NAME);
+        this.db = new DatabaseHelper(appContext);
+        this.dbExecutor = dbExecutor;
+    }
+
+    /**
+     * Keep the snapshot current from now on (called once, at app start).
+     */
+    void startUpdating() {
+        InvalidationTracker.getInstance().addObserver(DatabaseHelper.TABLE_EVENTS, this);
+    }
+
+    /**
+     * The app-wide snapshot, from any Context.
+     */
+    static AgendaSnapshot from(Context context) {
+        return ((EventsApplication) context.getApplicationContext()).getAgendaSnapshot();
+    }
+
+    boolean exists() {
+        return file.exists();
+    }
+
+    @Override
+    public void onInvalidated(String table) {
+        // A burst of writes (e.g. a sync) is folded into one rewrite
+        if (!writeQueued.compareAndSet(false, true)) return;
+        dbExecutor.execute(() -> {
+            writeQueued.set(false);
+            write(db.getEventRows(MAX_ROWS));
+        });
+    }
+
+    /**
+     * Replace the snapshot with the first rows of {@code rows} (in list order).
+     */
+    void write(List<EventsGridActivity.EventRow> rows) {
+        int count = Math.min(rows.size(), MAX_ROWS);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                EventsGridActivity.EventRow row = rows.get(i);
+                out.writeLong(row.id);
+                out.writeLong(row.dayKey);
+                writeString(out, row.name);
+                writeString(out, row.date);
+                writeString(out, row.time);
+                writeString(out, row.syncStatus);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write snapshot", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Could not replace snapshot");
+            tmp.delete();
+        }
+    }
+
+    /**
+     * The snapshot's rows, or null if there is no usable snapshot.
+     * Cheap enough to call on the main thread.
+     */
+    List<EventsGridActivity.EventRow> read() {
+        if (!file.exists()) return null;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return null;
+            buffer.getLong(); // writtenAt
+            int count = buffer.getInt();
+            if (count < 0 || count > MAX_ROWS) return null;
+
+            List<EventsGridActivity.EventRow> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = buffer.getLong();
+                long dayKey = buffer.getLong();
+                String name = readString(buffer);
+                String date = readString(buffer);
+                String time = readString(buffer);
+                String syncStatus = readString(buffer);
+                rows.add(new EventsGridActivity.EventRow(id, name, date, time, syncStatus, dayKey));
+            }
+            return Collections.unmodifiableList(rows);
+        } catch (IOException | BufferUnderflowException e) {
+            Log.w(TAG, "Ignoring unreadable snapshot", e);
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 0xFFFF);
+        out.writeShort(length);
+        out.write(bytes, 0, length);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
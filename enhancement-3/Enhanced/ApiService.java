@@ -6,14 +6,19 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ApiService handles HTTP communication with the remote backend API.
@@ -33,39 +38,124 @@ public class ApiService {
     private static final int CONNECT_TIMEOUT = 10000; // 10 seconds
     private static final int READ_TIMEOUT = 10000;    // 10 seconds
 
+    // NEW: Two-phase download endpoints (version manifest, then bodies by ID)
+    private static final String MANIFEST_PATH = "/events/manifest";
+    private static final String EVENTS_BY_ID_PATH = "/events?ids=";
+    // NEW: Anti-entropy endpoint (hash tree nodes, see EventHashTree)
+    private static final String TREE_PATH = "/events/tree?nodes=";
+    // NEW: Batched upload endpoint (binary wire format only)
+    private static final String BATCH_UPLOAD_PATH = "/events/batch";
+
+    // NEW: Prefer the compact binary format, accept JSON as fallback
+    private static final String ACCEPT_SYNC = EventWireCodec.CONTENT_TYPE + ", application/json;q=0.5";
+
+    // Set once the server has answered with the binary format; enables batched binary uploads
+    private static volatile boolean binarySupported = false;
+
     /**
      * Upload (POST) events to the remote server.
-     * Returns list of remote IDs assigned to each event.
+     * Returns the remote ID and new server version of each event, in order
+     * (null where that upload failed).
      */
-    public static List<String> uploadEvents(List<EventsGridActivity.Event> events) {
-        List<String> remoteIds = new ArrayList<>();
+    public static List<ManifestEntry> uploadEvents(List<EventsGridActivity.Event> events) {
+        if (binarySupported) {
+            try {
+                List<ManifestEntry> uploaded = uploadBatchBinary(events);
+                if (uploaded.size() == events.size()) {
+                    return uploaded;
+                }
+                Log.w(TAG, "Batch upload returned " + uploaded.size() + " IDs for "
+                        + events.size() + " events, retrying individually");
+            } catch (Exception e) {
+                Log.e(TAG, "Batch upload failed, retrying individually", e);
+            }
+        }
+
+        List<ManifestEntry> uploaded = new ArrayList<>();
 
         for (EventsGridActivity.Event event : events) {
             try {
-                String remoteId = uploadSingleEvent(event);
-                remoteIds.add(remoteId);
-                Log.d(TAG, "Uploaded event: " + event.name + " -> remoteId: " + remoteId);
+                ManifestEntry entry = uploadSingleEvent(event);
+                uploaded.add(entry);
+                Log.d(TAG, "Uploaded event: " + event.name + " -> remoteId: " + entry.remoteId);
             } catch (Exception e) {
                 Log.e(TAG, "Error uploading event: " + event.name, e);
-                remoteIds.add(null); // Failed upload
+                uploaded.add(null); // Failed upload
             }
         }
 
-        return remoteIds;
+        return uploaded;
+    }
+
+    /**
+     * NEW: Upload all events in one request using the binary wire format.
+     * Returns one (remote ID, version) per event, in order (null where the server rejected it).
+     */
+    private static List<ManifestEntry> uploadBatchBinary(List<EventsGridActivity.Event> events)
+            throws Exception {
+        URL url = new URL(BASE_URL + BATCH_UPLOAD_PATH);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+
+        try {
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", EventWireCodec.CONTENT_TYPE);
+            conn.setRequestProperty("Accept", ACCEPT_SYNC);
+            conn.setDoOutput(true);
+            conn.setConnectTimeout(CONNECT_TIMEOUT);
+            conn.setReadTimeout(READ_TIMEOUT);
+
+            OutputStream os = new BufferedOutputStream(conn.getOutputStream());
+            EventWireCodec.encodeUpload(events, os);
+            os.close();
+
+            int responseCode = conn.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK
+                    && responseCode != HttpURLConnection.HTTP_CREATED) {
+                throw new Exception("Batch upload failed with response code: " + responseCode);
+            }
+
+            if (EventWireCodec.isBinary(conn.getContentType())) {
+                List<ManifestEntry> uploaded =
+                        EventWireCodec.decodeManifest(
+                        new BufferedInputStream(conn.getInputStream()), conn.getContentLength());
+                for (int i = 0; i < uploaded.size(); i++) {
+                    if (uploaded.get(i).remoteId == null) uploaded.set(i, null);
+                }
+                return uploaded;
+            }
+
+            // JSON: [{"id": ..., "version": ...} or null, ...]
+            JSONArray jsonArray = new JSONArray(readBody(conn));
+            List<ManifestEntry> uploaded = new ArrayList<>(jsonArray.length());
+            for (int i = 0; i < jsonArray.length(); i++) {
+                JSONObject entry = jsonArray.optJSONObject(i);
+                String remoteId = entry != null ? entry.optString("id", null) : null;
+                uploaded.add(remoteId != null
+                        ? new ManifestEntry(remoteId, entry.optLong("version", 0)) : null);
+            }
+            return uploaded;
+
+        } finally {
+            conn.disconnect();
+        }
     }
 
     /**
      * Upload a single event to the server.
-     * Returns the remote ID assigned by the server.
+     * New events are created (POST); events that already have a remote ID were
+     * edited locally and are updated in place (PUT).
+     * Returns the remote ID and the version assigned by the server.
      */
-    private static String uploadSingleEvent(EventsGridActivity.Event event) throws Exception {
+    private static ManifestEntry uploadSingleEvent(EventsGridActivity.Event event) throws Exception {
+        boolean isUpdate = event.remoteId != null && !event.remoteId.isEmpty();
+
         // MOCK IMPLEMENTATION: Using JSONPlaceholder for demonstration
         // In production, replace with your actual API endpoint
-        URL url = new URL(BASE_URL + "/posts");
+        URL url = new URL(BASE_URL + "/posts" + (isUpdate ? "/" + event.remoteId : ""));
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
 
         try {
-            conn.setRequestMethod("POST");
+            conn.setRequestMethod(isUpdate ? "PUT" : "POST");
             conn.setRequestProperty("Content-Type", "application/json");
             conn.setDoOutput(true);
             conn.setConnectTimeout(CONNECT_TIMEOUT);
@@ -98,13 +188,17 @@ public class ApiService {
                 // Parse response to get remote ID
                 JSONObject responseJson = new JSONObject(response.toString());
                 String remoteId = responseJson.optString("id", null);
+                if (isUpdate) {
+                    remoteId = event.remoteId;
+                }
                 
                 // MOCK: Generate a unique ID if the mock API doesn't return one
                 if (remoteId == null || remoteId.isEmpty()) {
                     remoteId = "remote_" + System.currentTimeMillis() + "_" + event.id;
                 }
-                
-                return remoteId;
+
+                // NEW: Stored as remote_version, so the next manifest diff sees this row as current
+                return new ManifestEntry(remoteId, responseJson.optLong("version", 0));
             } else {
                 throw new Exception("Upload failed with response code: " + responseCode);
             }
@@ -174,6 +268,190 @@ public class ApiService {
         return remoteEvents;
     }
 
+    /**
+     * NEW: Download the compact version manifest: one (remote_id, version) pair per event.
+     * Expected format: [{"id":"42","v":1718000000000}, ...]
+     *
+     * @return manifest entries, or null if the server does not offer a manifest
+     *         (the caller should fall back to {@link #downloadEvents()})
+     */
+    public static List<ManifestEntry> downloadManifest() {
+        return fetchManifest(MANIFEST_PATH);
+    }
+
+    /**
+     * NEW: Download the manifest restricted to the given EventHashTree month buckets.
+     *
+     * @return manifest entries, or null on failure
+     */
+    public static List<ManifestEntry> downloadManifestForBuckets(List<Integer> buckets) {
+        return fetchManifest(MANIFEST_PATH + "?buckets=" + joinInts(buckets));
+    }
+
+    /**
+     * NEW: Fetch server-side EventHashTree hashes for the given heap node indices.
+     * Expected format: {"1": -8123..., "2": 0, ...}; missing nodes are treated as empty.
+     *
+     * @return node index -> hash, or null if the server does not support reconciliation
+     */
+    public static Map<Integer, Long> fetchTreeNodes(List<Integer> nodes) {
+        try {
+            URL url = new URL(BASE_URL + TREE_PATH + joinInts(nodes));
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+
+            try {
+                conn.setRequestMethod("GET");
+                conn.setRequestProperty("Accept", "application/json");
+                conn.setConnectTimeout(CONNECT_TIMEOUT);
+                conn.setReadTimeout(READ_TIMEOUT);
+
+                int responseCode = conn.getResponseCode();
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    Log.w(TAG, "Tree nodes not available, response code: " + responseCode);
+                    return null;
+                }
+
+                JSONObject json = new JSONObject(readBody(conn));
+                Map<Integer, Long> hashes = new HashMap<>();
+                for (Integer node : nodes) {
+                    hashes.put(node, json.optLong(String.valueOf(node), 0));
+                }
+                return hashes;
+
+            } finally {
+                conn.disconnect();
+            }
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error fetching tree nodes", e);
+            return null;
+        }
+    }
+
+    private static List<ManifestEntry> fetchManifest(String pathAndQuery) {
+        try {
+            URL url = new URL(BASE_URL + pathAndQuery);
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+
+            try {
+                conn.setRequestMethod("GET");
+                conn.setRequestProperty("Accept", ACCEPT_SYNC);
+                conn.setConnectTimeout(CONNECT_TIMEOUT);
+                conn.setReadTimeout(READ_TIMEOUT);
+
+                int responseCode = conn.getResponseCode();
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    Log.w(TAG, "Manifest not available, response code: " + responseCode);
+                    return null;
+                }
+
+                List<ManifestEntry> manifest;
+                if (EventWireCodec.isBinary(conn.getContentType())) {
+                    binarySupported = true;
+                    manifest = EventWireCodec.decodeManifest(
+                            new BufferedInputStream(conn.getInputStream()), conn.getContentLength());
+                } else {
+                    JSONArray jsonArray = new JSONArray(readBody(conn));
+                    manifest = new ArrayList<>(jsonArray.length());
+                    for (int i = 0; i < jsonArray.length(); i++) {
+                        JSONObject entry = jsonArray.getJSONObject(i);
+                        String remoteId = entry.optString("id", null);
+                        if (remoteId != null && !remoteId.isEmpty()) {
+                            manifest.add(new ManifestEntry(remoteId, entry.optLong("v", 0)));
+                        }
+                    }
+                }
+
+                Log.d(TAG, "Downloaded manifest with " + manifest.size() + " entries");
+                return manifest;
+
+            } finally {
+                conn.disconnect();
+            }
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error downloading manifest", e);
+            return null;
+        }
+    }
+
+    private static String joinInts(List<Integer> values) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer value : values) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * NEW: Download full bodies for the given remote IDs (second phase of a manifest sync).
+     * Callers should keep each batch small enough to fit in a URL query string.
+     */
+    public static List<RemoteEvent> downloadEventsByIds(List<String> remoteIds) throws Exception {
+        List<RemoteEvent> remoteEvents = new ArrayList<>(remoteIds.size());
+        if (remoteIds.isEmpty()) {
+            return remoteEvents;
+        }
+
+        StringBuilder ids = new StringBuilder();
+        for (String remoteId : remoteIds) {
+            if (ids.length() > 0) ids.append(',');
+            ids.append(remoteId);
+        }
+
+        URL url = new URL(BASE_URL + EVENTS_BY_ID_PATH
+                + URLEncoder.encode(ids.toString(), "UTF-8"));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+
+        try {
+            conn.setRequestMethod("GET");
+            conn.setRequestProperty("Accept", ACCEPT_SYNC);
+            conn.setConnectTimeout(CONNECT_TIMEOUT);
+            conn.setReadTimeout(READ_TIMEOUT);
+
+            int responseCode = conn.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new Exception("Batch download failed with response code: " + responseCode);
+            }
+
+            if (EventWireCodec.isBinary(conn.getContentType())) {
+                binarySupported = true;
+                remoteEvents.addAll(EventWireCodec.decodeEvents(
+                        new BufferedInputStream(conn.getInputStream()), conn.getContentLength()));
+            } else {
+                JSONArray jsonArray = new JSONArray(readBody(conn));
+                for (int i = 0; i < jsonArray.length(); i++) {
+                    RemoteEvent remoteEvent = parseRemoteEvent(jsonArray.getJSONObject(i));
+                    if (remoteEvent != null) {
+                        remoteEvents.add(remoteEvent);
+                    }
+                }
+            }
+
+            Log.d(TAG, "Downloaded " + remoteEvents.size() + "/" + remoteIds.size() + " event bodies");
+            return remoteEvents;
+
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Read the whole response body as a UTF-8 string.
+     */
+    private static String readBody(HttpURLConnection conn) throws Exception {
+        BufferedReader br = new BufferedReader(
+                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = br.readLine()) != null) {
+            response.append(line);
+        }
+        br.close();
+        return response.toString();
+    }
+
     /**
      * Parse a JSON object into a RemoteEvent.
      * Handles the mock API format.
@@ -181,6 +459,20 @@ public class ApiService {
     private static RemoteEvent parseRemoteEvent(JSONObject json) {
         try {
             String remoteId = json.optString("id", null);
+
+            // Structured events (manifest sync endpoints) carry real fields and a version
+            if (json.has("date")) {
+                return new RemoteEvent(
+                        remoteId,
+                        json.optString("name", "Remote Event"),
+                        json.optString("date"),
+                        json.optString("time", "12:00"),
+                        json.optString("description", ""),
+                        json.optString("recurrence_type", DatabaseHelper.RECURRENCE_NONE),
+                        json.optLong("version", 0)
+                );
+            }
+
             String title = json.optString("title", "Remote Event");
             String body = json.optString("body", "");
 
@@ -209,15 +501,36 @@ public class ApiService {
         public String time;
         public String description;
         public String recurrenceType;
+        // NEW: Server-side version (e.g. last modified time) used for manifest diffing
+        public long version;
 
         public RemoteEvent(String remoteId, String name, String date, String time,
                            String description, String recurrenceType) {
+            this(remoteId, name, date, time, description, recurrenceType, 0);
+        }
+
+        public RemoteEvent(String remoteId, String name, String date, String time,
+                           String description, String recurrenceType, long version) {
             this.remoteId = remoteId;
             this.name = name;
             this.date = date;
             this.time = time;
             this.description = description;
             this.recurrenceType = recurrenceType;
+            this.version = version;
+        }
+    }
+
+    /**
+     * NEW: One line of the version manifest.
+     */
+    public static class ManifestEntry {
+        public final String remoteId;
+        public final long version;
+
+        public ManifestEntry(String remoteId, long version) {
+            this.remoteId = remoteId;
+            this.version = version;
         }
     }
 }
@@ -0,0 +1,172 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AppExecutors holds the app's threads. There is one instance, owned by
+ * EventsApplication, and components take it from there rather than creating
+ * their own.
+ *
+ * - {@link #db()}: one thread. The repository, receivers and the sync apply
+ *   stage all run their database work here, so writers queue in order
+ *   instead of contending for the SQLite lock.
+ * - {@link #io()}: a bounded pool for blocking network calls (sync and the
+ *   download pipeline).
+ * - {@link #cpu()}: one thread per core, for pure computation such as list diffs.
+ * - {@link #mainThread()}: posts to the UI thread.
+ *
+ * Idle pool threads exit after {@link #KEEP_ALIVE_SECONDS}, so a backgrounded
+ * app holds no threads. Each pool records its queue depth and how long tasks
+ * waited and ran ({@link #logMetrics(String)}).
+ */
+public final class AppExecutors {
+
+    private static final String TAG = "AppExecutors";
+
+    private static final int IO_THREADS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final MeteredExecutor db;
+    private final MeteredExecutor io;
+    private final MeteredExecutor cpu;
+    private final Executor mainThread;
+
+    AppExecutors() {
+        int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.db = new MeteredExecutor("db", 1, Process.THREAD_PRIORITY_BACKGROUND);
+        this.io = new MeteredExecutor("io", IO_THREADS, Process.THREAD_PRIORITY_BACKGROUND);
+        this.cpu = new MeteredExecutor("cpu", cores, Process.THREAD_PRIORITY_DEFAULT);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        this.mainThread = mainHandler::post;
+    }
+
+    /**
+     * The app-wide executors, from any Context (activity, receiver, application).
+     */
+    public static AppExecutors from(Context context) {
+        return ((EventsApplication) context.getApplicationContext()).getExecutors();
+    }
+
+    public ExecutorService db() {
+        return db;
+    }
+
+    public ExecutorService io() {
+        return io;
+    }
+
+    public ExecutorService cpu() {
+        return cpu;
+    }
+
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Log queue depth and task latency for every pool, e.g.
+     * "db: 120 tasks, queued 0 (max 7), wait avg 1.2 ms / max 40 ms, run avg 3.1 ms".
+     */
+    public void logMetrics(String reason) {
+        Log.d(TAG, reason + " | " + db.metrics() + " | " + io.metrics() + " | " + cpu.metrics());
+    }
+
+    /**
+     * Fixed-size pool that times every task from enqueue to start (wait) and
+     * from start to finish (run).
+     */
+    static final class MeteredExecutor extends ThreadPoolExecutor {
+        private final String name;
+        private final AtomicLong tasks = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong runNanos = new AtomicLong();
+        private final AtomicLong maxQueueDepth = new AtomicLong();
+
+        MeteredExecutor(String name, int threads, int priority) {
+            super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory(name, priority));
+            this.name = name;
+            allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(new TimedTask(command));
+            raiseTo(maxQueueDepth, getQueue().size());
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable task) {
+            TimedTask timed = (TimedTask) task;
+            timed.startedAt = System.nanoTime();
+            long waited = timed.startedAt - timed.queuedAt;
+            waitNanos.addAndGet(waited);
+            raiseTo(maxWaitNanos, waited);
+        }
+
+        @Override
+        protected void afterExecute(Runnable task, Throwable error) {
+            runNanos.addAndGet(System.nanoTime() - ((TimedTask) task).startedAt);
+            tasks.incrementAndGet();
+        }
+
+        // AtomicLong.accumulateAndGet is API 24+; the app still runs on API 21
+        private static void raiseTo(AtomicLong max, long value) {
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        String metrics() {
+            long count = Math.max(1, tasks.get());
+            return String.format(Locale.US,
+                    "%s: %d tasks, queued %d (max %d), wait avg %.1f ms / max %.0f ms, run avg %.1f ms",
+                    name, tasks.get(), getQueue().size(), maxQueueDepth.get(),
+                    waitNanos.get() / 1e6 / count, maxWaitNanos.get() / 1e6,
+                    runNanos.get() / 1e6 / count);
+        }
+
+        private static ThreadFactory threadFactory(String name, int priority) {
+            AtomicInteger count = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(priority);
+                    runnable.run();
+                }, "app-" + name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    private static final class TimedTask implements Runnable {
+        final Runnable task;
+        final long queuedAt = System.nanoTime();
+        long startedAt;
+
+        TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.view.Gravity;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * Calendar grid for EventsGridActivity: one RecyclerView item per week (Monday
+ * first, 1900-2099), so only the visible weeks exist as views and cells are
+ * recycled while scrolling across years.
+ *
+ * - Month mode: compact cells with the day number and the event count.
+ * - Week mode: tall cells listing the first few events of each day.
+ *
+ * The adapter never queries the database. It renders the current {@link Window}
+ * (per-day counts from one aggregate query plus expanded recurring events, and
+ * rows in week mode) that the activity loads for the visible weeks; days outside
+ * the window show no events until it moves.
+ */
+public class CalendarGridAdapter extends RecyclerView.Adapter<CalendarGridAdapter.WeekHolder> {
+
+    public static final int MODE_MONTH = 0;
+    public static final int MODE_WEEK = 1;
+
+    // 1900-01-01 was a Monday
+    private static final long FIRST_MONDAY = DateTimeCodec.daysFromCivil(1900, 1, 1);
+    private static final int WEEK_COUNT =
+            (int) ((DateTimeCodec.daysFromCivil(2100, 1, 1) - FIRST_MONDAY) / 7);
+
+    private static final String[] MONTHS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun",
+            "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+    private static final String[] WEEKDAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    private static final int MONTH_ROW_DP = 64;
+    private static final int WEEK_ROW_DP = 180;
+    private static final int MAX_TITLES_PER_DAY = 4;
+
+    private static final int COLOR_EVEN_MONTH = Color.WHITE;
+    private static final int COLOR_ODD_MONTH = 0xFFF2F2F2;
+    private static final int COLOR_TODAY = 0xFFFFF3C4;
+
+    private final long today;
+    private int mode = MODE_MONTH;
+    private Window window;
+
+    public CalendarGridAdapter(long today) {
+        this.today = today;
+        setHasStableIds(true);
+    }
+
+    public void setMode(int mode) {
+        if (this.mode == mode) return;
+        this.mode = mode;
+        // Every row changes height and content
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Show a newly loaded window; only the weeks it covers are rebound.
+     */
+    public void setWindow(Window window) {
+        this.window = window;
+        if (window == null) return;
+        int first = positionOfDay(window.fromDay);
+        int last = positionOfDay(window.toDay - 1);
+        notifyItemRangeChanged(first, last - first + 1);
+    }
+
+    public int positionOfDay(long epochDay) {
+        long position = Math.floorDiv(epochDay - FIRST_MONDAY, 7);
+        return (int) Math.max(0, Math.min(WEEK_COUNT - 1, position));
+    }
+
+    public long firstDayOfPosition(int position) {
+        return FIRST_MONDAY + position * 7L;
+    }
+
+    @Override
+    public int getItemCount() {
+        return WEEK_COUNT;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @NonNull
+    @Override
+    public WeekHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return new WeekHolder(parent.getContext());
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull WeekHolder holder, int position) {
+        holder.setRowHeight(mode == MODE_WEEK ? WEEK_ROW_DP : MONTH_ROW_DP);
+
+        long firstDay = firstDayOfPosition(position);
+        for (int i = 0; i < 7; i++) {
+            long day = firstDay + i;
+            int[] ymd = DateTimeCodec.civilFromDays(day);
+            TextView cell = holder.cells[i];
+
+            StringBuilder text = new StringBuilder();
+            if (mode == MODE_WEEK) {
+                text.append(WEEKDAYS[i]).append(' ');
+            }
+            if (ymd[2] == 1 || mode == MODE_WEEK) {
+                text.append(MONTHS[ymd[1] - 1]).append(' ');
+            }
+            text.append(ymd[2]);
+
+            if (window != null && window.contains(day)) {
+                if (mode == MODE_WEEK && window.rows != null) {
+                    appendTitles(text, day);
+                } else if (window.countOn(day) > 0) {
+                    text.append("\n● ").append(window.countOn(day));
+                }
+            }
+
+            cell.setText(text);
+            cell.setBackgroundColor(day == today ? COLOR_TODAY
+                    : (ymd[1] % 2 == 0 ? COLOR_EVEN_MONTH : COLOR_ODD_MONTH));
+        }
+    }
+
+    private void appendTitles(StringBuilder text, long day) {
+        int start = window.rowStart(day);
+        int end = window.rowStart(day + 1);
+        int shown = Math.min(end - start, MAX_TITLES_PER_DAY);
+        for (int r = start; r < start + shown; r++) {
+            EventsGridActivity.EventRow row = window.rows.get(r);
+            text.append('\n').append(row.time).append(' ').append(row.name);
+        }
+        if (end - start > shown) {
+            text.append("\n+").append(end - start - shown).append(" more");
+        }
+    }
+
+    /**
+     * Events loaded for the days [fromDay, toDay).
+     */
+    public static final class Window {
+        public final long fromDay;
+        public final long toDay;
+        private final int[] counts;
+        // Week mode only: rows ordered by day, rowStarts[d] = first row of fromDay + d
+        final List<EventsGridActivity.EventRow> rows;
+        private final int[] rowStarts;
+
+        public Window(long fromDay, long toDay, int[] counts, List<EventsGridActivity.EventRow> rows) {
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.counts = counts;
+            this.rows = rows;
+            this.rowStarts = rows != null ? indexByDay(fromDay, toDay, rows) : null;
+        }
+
+        boolean contains(long day) {
+            return day >= fromDay && day < toDay;
+        }
+
+        int countOn(long day) {
+            return counts[(int) (day - fromDay)];
+        }
+
+        int rowStart(long day) {
+            return rowStarts[(int) (day - fromDay)];
+        }
+
+        private static int[] indexByDay(long fromDay, long toDay,
+                                        List<EventsGridActivity.EventRow> rows) {
+            int days = (int) (toDay - fromDay);
+            int[] starts = new int[days + 1];
+            int r = 0;
+            for (int d = 0; d <= days; d++) {
+                while (r < rows.size() && rows.get(r).dayKey < fromDay + d) r++;
+                starts[d] = r;
+            }
+            return starts;
+        }
+    }
+
+    /**
+     * One week: seven equal-width day cells, built in code.
+     */
+    static class WeekHolder extends RecyclerView.ViewHolder {
+        final TextView[] cells = new TextView[7];
+        private final float density;
+        private int rowHeightDp;
+
+        WeekHolder(Context context) {
+            super(new LinearLayout(context));
+            density = context.getResources().getDisplayMetrics().density;
+
+            LinearLayout row = (LinearLayout) itemView;
+            row.setOrientation(LinearLayout.HORIZONTAL);
+            row.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+
+            int padding = (int) (4 * density);
+            for (int i = 0; i < 7; i++) {
+                TextView cell = new TextView(context);
+                cell.setLayoutParams(new LinearLayout.LayoutParams(
+                        0, ViewGroup.LayoutParams.MATCH_PARENT, 1f));
+                cell.setGravity(Gravity.TOP | Gravity.START);
+                cell.setPadding(padding, padding, padding, padding);
+                cell.setTextSize(12);
+                cells[i] = cell;
+                row.addView(cell);
+            }
+        }
+
+        void setRowHeight(int heightDp) {
+            if (rowHeightDp == heightDp) return;
+            rowHeightDp = heightDp;
+            ViewGroup.LayoutParams params = itemView.getLayoutParams();
+            params.height = (int) (heightDp * density);
+            itemView.setLayoutParams(params);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.projectthree_sunnynguyen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ConflictResolver performs a field-level three-way merge between the last
+ * server copy of an event (base), the local row and the incoming remote row.
+ *
+ * For each field:
+ * - local == remote            -> take it (no change, or same change on both sides)
+ * - only remote changed (local == base) -> take remote
+ * - only local changed (remote == base) -> keep local (still to be uploaded)
+ * - both changed differently   -> keep local and report a conflict for review
+ *
+ * Without a base (row synced before bases were recorded) any difference is a conflict.
+ */
+public final class ConflictResolver {
+
+    // Field order shared with DatabaseHelper; also used as the field name in conflict records
+    public static final String[] FIELD_NAMES = {
+            "name", "date", "time", "description", "recurrence_type"
+    };
+
+    private ConflictResolver() {
+    }
+
+    /**
+     * Merge one event. All arrays follow FIELD_NAMES order; base may be null.
+     */
+    public static Result merge(String[] base, String[] local, String[] remote) {
+        String[] merged = new String[FIELD_NAMES.length];
+        List<Integer> conflicts = new ArrayList<>();
+        boolean localChanges = false;
+
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            String l = local[i];
+            String r = remote[i];
+
+            if (equal(l, r)) {
+                merged[i] = r;
+            } else if (base != null && equal(l, base[i])) {
+                merged[i] = r;
+            } else if (base != null && equal(r, base[i])) {
+                merged[i] = l;
+                localChanges = true;
+            } else {
+                merged[i] = l;
+                localChanges = true;
+                conflicts.add(i);
+            }
+        }
+
+        return new Result(merged, conflicts, localChanges);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Outcome of a merge.
+     */
+    public static class Result {
+        public final String[] merged;
+        // Indices into FIELD_NAMES that changed on both sides
+        public final List<Integer> conflictingFields;
+        // true if the merged row still differs from the server and must be uploaded
+        public final boolean hasLocalChanges;
+
+        Result(String[] merged, List<Integer> conflictingFields, boolean hasLocalChanges) {
+            this.merged = merged;
+            this.conflictingFields = conflictingFields;
+            this.hasLocalChanges = hasLocalChanges;
+        }
+    }
+
+    /**
+     * A recorded conflict awaiting review.
+     */
+    public static class Conflict {
+        public final long id;
+        public final String remoteId;
+        public final String field;
+        public final String localValue;
+        public final String remoteValue;
+        public final long detectedAt;
+
+        public Conflict(long id, String remoteId, String field,
+                        String localValue, String remoteValue, long detectedAt) {
+            this.id = id;
+            this.remoteId = remoteId;
+            this.field = field;
+            this.localValue = localValue;
+            this.remoteValue = remoteValue;
+            this.detectedAt = detectedAt;
+        }
+    }
+}
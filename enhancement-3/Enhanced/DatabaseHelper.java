@@ -5,18 +5,23 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     // Database Info
     private static final String DATABASE_NAME = "events.db";
-    private static final int DATABASE_VERSION = 4; // bumped for cloud sync support
+    private static final int DATABASE_VERSION = 9; // bumped for calendar day_key
 
     // Event Table
-    private static final String TABLE_EVENTS = "events";
+    public static final String TABLE_EVENTS = "events";
     private static final String COL_ID = "id";
     private static final String COL_NAME = "name";
     private static final String COL_DATE = "date";
@@ -27,13 +32,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COL_REMOTE_ID = "remote_id";
     private static final String COL_SYNC_STATUS = "sync_status";
     private static final String COL_LAST_MODIFIED = "last_modified";
+    private static final String COL_REMOTE_VERSION = "remote_version";
+    // NEW: Event date as an epoch day, so calendar ranges are indexed integer ranges
+    private static final String COL_DAY_KEY = "day_key";
 
     // Sync status constants
     public static final String SYNC_STATUS_PENDING = "PENDING";
     public static final String SYNC_STATUS_SYNCED = "SYNCED";
     public static final String SYNC_STATUS_LOCAL_ONLY = "LOCAL_ONLY";
 
-    // Recurrence constants
+    // Recurrence constants (recurrence_type may also hold an RRULE string, see RecurrenceRule)
     public static final String RECURRENCE_NONE = "NONE";
     public static final String RECURRENCE_DAILY = "DAILY";
     public static final String RECURRENCE_WEEKLY = "WEEKLY";
@@ -49,11 +57,55 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String TABLE_SYNC_META = "sync_metadata";
     private static final String COL_META_KEY = "meta_key";
     private static final String COL_META_VALUE = "meta_value";
+    private static final String META_RECONCILE_REQUESTED = "reconcile_requested";
+    private static final String META_ARMED_FIRE_AT = "armed_fire_at";
+
+    // NEW: Last server copy of each synced event (merge base for conflict resolution)
+    private static final String TABLE_SYNC_BASE = "sync_base";
+
+    // NEW: Field conflicts recorded during merge, kept for later review
+    private static final String TABLE_CONFLICTS = "sync_conflicts";
+    private static final String COL_CONFLICT_ID = "id";
+    private static final String COL_CONFLICT_FIELD = "field";
+    private static final String COL_LOCAL_VALUE = "local_value";
+    private static final String COL_REMOTE_VALUE = "remote_value";
+    private static final String COL_DETECTED_AT = "detected_at";
+    private static final String COL_RESOLVED = "resolved";
+
+    // NEW: Pending reminders; ReminderScheduler arms one OS alarm for MIN(fire_at)
+    private static final String TABLE_REMINDERS = "scheduled_reminders";
+    private static final String COL_EVENT_ID = "event_id";
+    private static final String COL_FIRE_AT = "fire_at";
+
+    // NEW: Durable SMS outbox drained by SmsDispatcher
+    private static final String TABLE_SMS_OUTBOX = "sms_outbox";
+    private static final String COL_SMS_ID = "id";
+    private static final String COL_SMS_DESTINATION = "destination";
+    private static final String COL_SMS_BODY = "body";
+    private static final String COL_SMS_STATUS = "status";
+    private static final String COL_SMS_ATTEMPTS = "attempts";
+    private static final String COL_SMS_NEXT_ATTEMPT = "next_attempt_at";
+    private static final String COL_SMS_SENT_AT = "sent_at";
+    private static final String COL_SMS_PARTS_TOTAL = "parts_total";
+    private static final String COL_SMS_PARTS_SENT = "parts_sent";
+    private static final String COL_SMS_CREATED_AT = "created_at";
+
+    // SMS outbox status constants
+    public static final String SMS_STATUS_QUEUED = "QUEUED";
+    public static final String SMS_STATUS_SENDING = "SENDING";
+    public static final String SMS_STATUS_SENT = "SENT";
+    public static final String SMS_STATUS_DELIVERED = "DELIVERED";
+    public static final String SMS_STATUS_FAILED = "FAILED";
 
     public DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
+    // NEW: Tell live queries over the events table to re-run (after the write committed)
+    private static void notifyEventsChanged() {
+        InvalidationTracker.getInstance().notifyChanged(TABLE_EVENTS);
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
 
@@ -67,7 +119,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COL_RECURRENCE + " TEXT DEFAULT '" + RECURRENCE_NONE + "', " +
                 COL_REMOTE_ID + " TEXT, " +
                 COL_SYNC_STATUS + " TEXT DEFAULT '" + SYNC_STATUS_PENDING + "', " +
-                COL_LAST_MODIFIED + " INTEGER DEFAULT 0)");
+                COL_LAST_MODIFIED + " INTEGER DEFAULT 0, " +
+                COL_REMOTE_VERSION + " INTEGER DEFAULT 0, " +
+                COL_DAY_KEY + " INTEGER)");
 
         // Add performance indexes
         db.execSQL("CREATE INDEX idx_events_date ON " + TABLE_EVENTS + " (" + COL_DATE + ")");
@@ -76,6 +130,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         // NEW: Index for sync operations
         db.execSQL("CREATE INDEX idx_events_sync_status ON " + TABLE_EVENTS + " (" + COL_SYNC_STATUS + ")");
         db.execSQL("CREATE INDEX idx_events_remote_id ON " + TABLE_EVENTS + " (" + COL_REMOTE_ID + ")");
+        // NEW: Calendar windows and chronological order
+        createDayKeyIndex(db);
 
         // Create users table
         db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_USERS + " (" +
@@ -87,15 +143,143 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL("CREATE TABLE " + TABLE_SYNC_META + " (" +
                 COL_META_KEY + " TEXT PRIMARY KEY, " +
                 COL_META_VALUE + " TEXT)");
+
+        // NEW: Merge base and conflict tables, scheduled reminders, SMS outbox
+        createMergeTables(db);
+        createRemindersTable(db);
+        createSmsOutboxTable(db);
+
+        // NEW: A freshly created (or rebuilt) database has drifted from the server,
+        // so ask the next sync to run anti-entropy reconciliation
+        db.execSQL("INSERT INTO " + TABLE_SYNC_META + " VALUES ('" +
+                META_RECONCILE_REQUESTED + "', '1')");
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Rebuild database for changes
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EVENTS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_META);
-        onCreate(db);
+        if (oldVersion < 4) {
+            // Rebuild database for changes
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_EVENTS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_META);
+            onCreate(db);
+            return;
+        }
+
+        // NEW: From v4 on, migrate one version at a step so local events,
+        // reminders and queued SMS survive the upgrade
+        if (oldVersion < 5) {
+            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " +
+                    COL_REMOTE_VERSION + " INTEGER DEFAULT 0");
+        }
+        if (oldVersion < 6) {
+            createMergeTables(db);
+            // Synced rows have no server version or merge base yet: rebuild them
+            // from the server on the next sync
+            db.execSQL("INSERT OR REPLACE INTO " + TABLE_SYNC_META + " VALUES ('" +
+                    META_RECONCILE_REQUESTED + "', '1')");
+        }
+        if (oldVersion < 7) {
+            createRemindersTable(db);
+            backfillReminders(db);
+        }
+        if (oldVersion < 8) {
+            createSmsOutboxTable(db);
+        }
+        if (oldVersion < 9) {
+            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COL_DAY_KEY + " INTEGER");
+            backfillDayKeys(db);
+            createDayKeyIndex(db);
+        }
+    }
+
+    private static void createMergeTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_BASE + " (" +
+                COL_REMOTE_ID + " TEXT PRIMARY KEY, " +
+                COL_NAME + " TEXT, " +
+                COL_DATE + " TEXT, " +
+                COL_TIME + " TEXT, " +
+                COL_DESC + " TEXT, " +
+                COL_RECURRENCE + " TEXT, " +
+                COL_REMOTE_VERSION + " INTEGER DEFAULT 0)");
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CONFLICTS + " (" +
+                COL_CONFLICT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COL_REMOTE_ID + " TEXT, " +
+                COL_CONFLICT_FIELD + " TEXT, " +
+                COL_LOCAL_VALUE + " TEXT, " +
+                COL_REMOTE_VALUE + " TEXT, " +
+                COL_REMOTE_VERSION + " INTEGER DEFAULT 0, " +
+                COL_DETECTED_AT + " INTEGER, " +
+                COL_RESOLVED + " INTEGER DEFAULT 0)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_conflicts_resolved ON " + TABLE_CONFLICTS +
+                " (" + COL_RESOLVED + ")");
+    }
+
+    // Scheduled reminders, indexed by fire time for next-due lookups
+    private static void createRemindersTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_REMINDERS + " (" +
+                COL_EVENT_ID + " INTEGER PRIMARY KEY, " +
+                COL_FIRE_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_reminders_fire_at ON " + TABLE_REMINDERS +
+                " (" + COL_FIRE_AT + ")");
+    }
+
+    private static void createSmsOutboxTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SMS_OUTBOX + " (" +
+                COL_SMS_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COL_SMS_DESTINATION + " TEXT NOT NULL, " +
+                COL_SMS_BODY + " TEXT NOT NULL, " +
+                COL_SMS_STATUS + " TEXT DEFAULT '" + SMS_STATUS_QUEUED + "', " +
+                COL_SMS_ATTEMPTS + " INTEGER DEFAULT 0, " +
+                COL_SMS_NEXT_ATTEMPT + " INTEGER DEFAULT 0, " +
+                COL_SMS_SENT_AT + " INTEGER DEFAULT 0, " +
+                COL_SMS_PARTS_TOTAL + " INTEGER DEFAULT 0, " +
+                COL_SMS_PARTS_SENT + " INTEGER DEFAULT 0, " +
+                COL_SMS_CREATED_AT + " INTEGER)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_sms_status_next ON " + TABLE_SMS_OUTBOX +
+                " (" + COL_SMS_STATUS + ", " + COL_SMS_NEXT_ATTEMPT + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_sms_sent_at ON " + TABLE_SMS_OUTBOX +
+                " (" + COL_SMS_SENT_AT + ")");
+    }
+
+    private static void createDayKeyIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_events_day_key ON " + TABLE_EVENTS +
+                " (" + COL_DAY_KEY + ", " + COL_TIME + ")");
+    }
+
+    // v7 migration: before the reminders table each event had its own OS alarm;
+    // carry every future event over so ReminderScheduler arms it from here on
+    private static void backfillReminders(SQLiteDatabase db) {
+        TimeZone tz = TimeZone.getDefault();
+        long now = System.currentTimeMillis();
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_ID + ", " + COL_DATE + ", " + COL_TIME + " FROM " + TABLE_EVENTS,
+                null);
+        ContentValues values = new ContentValues();
+        while (c.moveToNext()) {
+            long day = DateTimeCodec.parseDate(c.getString(1));
+            int minute = DateTimeCodec.parseTime(c.getString(2));
+            if (day == DateTimeCodec.NO_DAY || minute == DateTimeCodec.NO_TIME) continue;
+            long fireAt = DateTimeCodec.toEpochMillis(day, minute, tz);
+            if (fireAt <= now) continue;
+            values.put(COL_EVENT_ID, c.getLong(0));
+            values.put(COL_FIRE_AT, fireAt);
+            db.insert(TABLE_REMINDERS, null, values);
+        }
+        c.close();
+    }
+
+    // v9 migration: derive day_key for the existing rows
+    private static void backfillDayKeys(SQLiteDatabase db) {
+        Cursor c = db.rawQuery("SELECT " + COL_ID + ", " + COL_DATE + " FROM " + TABLE_EVENTS, null);
+        ContentValues values = new ContentValues();
+        while (c.moveToNext()) {
+            values.clear();
+            putDayKey(values, c.getString(1));
+            db.update(TABLE_EVENTS, values, COL_ID + "=?", new String[]{String.valueOf(c.getLong(0))});
+        }
+        c.close();
     }
 
     // Insert event (with sync support)
@@ -111,6 +295,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         ContentValues values = new ContentValues();
         values.put(COL_NAME, name);
         values.put(COL_DATE, date);
+        putDayKey(values, date);
         values.put(COL_TIME, time);
         values.put(COL_DESC, description);
         values.put(COL_RECURRENCE, recurrenceType);
@@ -119,6 +304,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         long id = db.insert(TABLE_EVENTS, null, values);
         db.close();
+        notifyEventsChanged();
         return id;
     }
 
@@ -126,6 +312,30 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return insertEvent(name, date, time, description, RECURRENCE_NONE);
     }
 
+    // NEW: Local edit. Marks the row PENDING so the next sync uploads (and merges) it.
+    public void updateEvent(long id, String name, String date, String time,
+                            String description, String recurrenceType) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        if (recurrenceType == null || recurrenceType.trim().isEmpty()) {
+            recurrenceType = RECURRENCE_NONE;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(COL_NAME, name);
+        values.put(COL_DATE, date);
+        putDayKey(values, date);
+        values.put(COL_TIME, time);
+        values.put(COL_DESC, description);
+        values.put(COL_RECURRENCE, recurrenceType);
+        values.put(COL_SYNC_STATUS, SYNC_STATUS_PENDING);
+        values.put(COL_LAST_MODIFIED, System.currentTimeMillis());
+
+        db.update(TABLE_EVENTS, values, COL_ID + "=?", new String[]{String.valueOf(id)});
+        db.close();
+        notifyEventsChanged();
+    }
+
     // NEW: Insert event from remote sync (with remote_id and synced status)
     public long insertEventFromRemote(String remoteId, String name, String date, String time,
                                       String description, String recurrenceType) {
@@ -139,6 +349,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COL_REMOTE_ID, remoteId);
         values.put(COL_NAME, name);
         values.put(COL_DATE, date);
+        putDayKey(values, date);
         values.put(COL_TIME, time);
         values.put(COL_DESC, description);
         values.put(COL_RECURRENCE, recurrenceType);
@@ -147,9 +358,298 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         long id = db.insert(TABLE_EVENTS, null, values);
         db.close();
+        notifyEventsChanged();
         return id;
     }
 
+    // NEW: Map of remote_id -> remote_version for every synced row (used to diff the server manifest)
+    public Map<String, Long> getRemoteVersions() {
+        Map<String, Long> versions = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_REMOTE_ID + ", " + COL_REMOTE_VERSION +
+                        " FROM " + TABLE_EVENTS +
+                        " WHERE " + COL_REMOTE_ID + " IS NOT NULL",
+                null
+        );
+
+        if (c.moveToFirst()) {
+            int idxRemoteId = c.getColumnIndexOrThrow(COL_REMOTE_ID);
+            int idxVersion = c.getColumnIndexOrThrow(COL_REMOTE_VERSION);
+
+            do {
+                versions.put(c.getString(idxRemoteId), c.getLong(idxVersion));
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return versions;
+    }
+
+    // NEW: (remote_id, remote_version, date) for every row known to the server,
+    // used to build the local EventHashTree for reconciliation
+    public List<EventHashTree.Entry> getRemoteEventKeys() {
+        List<EventHashTree.Entry> keys = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_REMOTE_ID + ", " + COL_REMOTE_VERSION + ", " + COL_DATE + ", " +
+                        COL_SYNC_STATUS +
+                        " FROM " + TABLE_EVENTS +
+                        " WHERE " + COL_REMOTE_ID + " IS NOT NULL",
+                null
+        );
+
+        if (c.moveToFirst()) {
+            int idxRemoteId = c.getColumnIndexOrThrow(COL_REMOTE_ID);
+            int idxVersion = c.getColumnIndexOrThrow(COL_REMOTE_VERSION);
+            int idxDate = c.getColumnIndexOrThrow(COL_DATE);
+            int idxSyncStatus = c.getColumnIndexOrThrow(COL_SYNC_STATUS);
+
+            do {
+                keys.add(new EventHashTree.Entry(
+                        c.getString(idxRemoteId),
+                        c.getLong(idxVersion),
+                        c.getString(idxDate),
+                        SYNC_STATUS_SYNCED.equals(c.getString(idxSyncStatus))));
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return keys;
+    }
+
+    // NEW: Remove rows the server no longer has. Rows with unsynced local edits are kept.
+    public int deleteSyncedEventsByRemoteId(List<String> remoteIds) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int deleted = 0;
+
+        db.beginTransaction();
+        try {
+            for (String remoteId : remoteIds) {
+                // Drop the reminder first so the deleted event never wakes the device
+                db.execSQL("DELETE FROM " + TABLE_REMINDERS + " WHERE " + COL_EVENT_ID +
+                                " IN (SELECT " + COL_ID + " FROM " + TABLE_EVENTS +
+                                " WHERE " + COL_REMOTE_ID + "=? AND " + COL_SYNC_STATUS + "=?)",
+                        new Object[]{remoteId, SYNC_STATUS_SYNCED});
+                int count = db.delete(TABLE_EVENTS,
+                        COL_REMOTE_ID + "=? AND " + COL_SYNC_STATUS + "=?",
+                        new String[]{remoteId, SYNC_STATUS_SYNCED});
+                if (count > 0) {
+                    db.delete(TABLE_SYNC_BASE, COL_REMOTE_ID + "=?", new String[]{remoteId});
+                    deleted += count;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            db.close();
+        }
+        if (deleted > 0) notifyEventsChanged();
+        return deleted;
+    }
+
+    /**
+     * NEW: Apply a batch of downloaded remote events in a single transaction.
+     *
+     * - Unknown remote_ids are inserted.
+     * - Remote copies older than the local remote_version are ignored.
+     * - SYNCED rows (no local edits) take the remote copy.
+     * - Rows with unsynced local edits are merged field by field against the last
+     *   server copy (sync_base); fields changed on both sides keep the local value
+     *   and are recorded in sync_conflicts for review.
+     *
+     * @return number of rows inserted or updated
+     */
+    public int applyRemoteEvents(List<ApiService.RemoteEvent> remoteEvents) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int applied = 0;
+        long now = System.currentTimeMillis();
+
+        db.beginTransaction();
+        try {
+            for (ApiService.RemoteEvent remote : remoteEvents) {
+                if (remote.remoteId == null) {
+                    continue; // malformed server row: nothing to key it by
+                }
+                String recurrenceType = remote.recurrenceType;
+                if (recurrenceType == null || recurrenceType.trim().isEmpty()) {
+                    recurrenceType = RECURRENCE_NONE;
+                }
+                String[] remoteFields = {
+                        remote.name, remote.date, remote.time, remote.description, recurrenceType
+                };
+
+                Cursor c = db.rawQuery(
+                        "SELECT " + COL_ID + ", " + COL_NAME + ", " + COL_DATE + ", " +
+                                COL_TIME + ", " + COL_DESC + ", " + COL_RECURRENCE + ", " +
+                                COL_SYNC_STATUS + ", " + COL_REMOTE_VERSION +
+                                " FROM " + TABLE_EVENTS +
+                                " WHERE " + COL_REMOTE_ID + "=?",
+                        new String[]{remote.remoteId}
+                );
+
+                if (!c.moveToFirst()) {
+                    c.close();
+                    ContentValues values = eventRowValues(remoteFields);
+                    values.put(COL_REMOTE_ID, remote.remoteId);
+                    values.put(COL_SYNC_STATUS, SYNC_STATUS_SYNCED);
+                    values.put(COL_REMOTE_VERSION, remote.version);
+                    values.put(COL_LAST_MODIFIED, now);
+                    if (db.insert(TABLE_EVENTS, null, values) != -1) {
+                        writeSyncBase(db, remote.remoteId, remoteFields, remote.version);
+                        applied++;
+                    }
+                    continue;
+                }
+
+                long localId = c.getLong(0);
+                String[] localFields = {
+                        c.getString(1), c.getString(2), c.getString(3), c.getString(4), c.getString(5)
+                };
+                String syncStatus = c.getString(6);
+                long localVersion = c.getLong(7);
+                c.close();
+
+                if (remote.version != 0 && remote.version < localVersion) {
+                    continue; // stale copy, local already has a newer server version
+                }
+
+                ContentValues values;
+                if (SYNC_STATUS_SYNCED.equals(syncStatus)) {
+                    values = eventRowValues(remoteFields);
+                    values.put(COL_SYNC_STATUS, SYNC_STATUS_SYNCED);
+                } else {
+                    String[] base = readSyncBase(db, remote.remoteId);
+                    ConflictResolver.Result result =
+                            ConflictResolver.merge(base, localFields, remoteFields);
+
+                    values = eventRowValues(result.merged);
+                    values.put(COL_SYNC_STATUS,
+                            result.hasLocalChanges ? SYNC_STATUS_PENDING : SYNC_STATUS_SYNCED);
+
+                    for (int field : result.conflictingFields) {
+                        ContentValues conflict = new ContentValues();
+                        conflict.put(COL_REMOTE_ID, remote.remoteId);
+                        conflict.put(COL_CONFLICT_FIELD, ConflictResolver.FIELD_NAMES[field]);
+                        conflict.put(COL_LOCAL_VALUE, localFields[field]);
+                        conflict.put(COL_REMOTE_VALUE, remoteFields[field]);
+                        conflict.put(COL_REMOTE_VERSION, remote.version);
+                        conflict.put(COL_DETECTED_AT, now);
+                        db.insert(TABLE_CONFLICTS, null, conflict);
+                    }
+                }
+                values.put(COL_REMOTE_VERSION, remote.version);
+                values.put(COL_LAST_MODIFIED, now);
+
+                db.update(TABLE_EVENTS, values, COL_ID + "=?", new String[]{String.valueOf(localId)});
+                writeSyncBase(db, remote.remoteId, remoteFields, remote.version);
+                applied++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            db.close();
+        }
+        if (applied > 0) notifyEventsChanged();
+        return applied;
+    }
+
+    // Values for an events row: the synced fields plus the derived day_key
+    private ContentValues eventRowValues(String[] fields) {
+        ContentValues values = eventFieldValues(fields);
+        putDayKey(values, fields[1]);
+        return values;
+    }
+
+    // NEW: day_key for a "MM/dd/yyyy" date (NULL if it cannot be parsed)
+    private static void putDayKey(ContentValues values, String date) {
+        long day = DateTimeCodec.parseDate(date);
+        if (day == DateTimeCodec.NO_DAY) {
+            values.putNull(COL_DAY_KEY);
+        } else {
+            values.put(COL_DAY_KEY, day);
+        }
+    }
+
+    // Field values in ConflictResolver.FIELD_NAMES order
+    private ContentValues eventFieldValues(String[] fields) {
+        ContentValues values = new ContentValues();
+        values.put(COL_NAME, fields[0]);
+        values.put(COL_DATE, fields[1]);
+        values.put(COL_TIME, fields[2]);
+        values.put(COL_DESC, fields[3]);
+        values.put(COL_RECURRENCE, fields[4]);
+        return values;
+    }
+
+    private void writeSyncBase(SQLiteDatabase db, String remoteId, String[] fields, long version) {
+        ContentValues values = eventFieldValues(fields);
+        values.put(COL_REMOTE_ID, remoteId);
+        values.put(COL_REMOTE_VERSION, version);
+        db.insertWithOnConflict(TABLE_SYNC_BASE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private String[] readSyncBase(SQLiteDatabase db, String remoteId) {
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_NAME + ", " + COL_DATE + ", " + COL_TIME + ", " +
+                        COL_DESC + ", " + COL_RECURRENCE +
+                        " FROM " + TABLE_SYNC_BASE +
+                        " WHERE " + COL_REMOTE_ID + "=?",
+                new String[]{remoteId}
+        );
+
+        String[] base = null;
+        if (c.moveToFirst()) {
+            base = new String[]{
+                    c.getString(0), c.getString(1), c.getString(2), c.getString(3), c.getString(4)
+            };
+        }
+        c.close();
+        return base;
+    }
+
+    // NEW: Conflicts that have not been reviewed yet, newest first
+    public List<ConflictResolver.Conflict> getUnresolvedConflicts() {
+        List<ConflictResolver.Conflict> list = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_CONFLICT_ID + ", " + COL_REMOTE_ID + ", " + COL_CONFLICT_FIELD + ", " +
+                        COL_LOCAL_VALUE + ", " + COL_REMOTE_VALUE + ", " + COL_DETECTED_AT +
+                        " FROM " + TABLE_CONFLICTS +
+                        " WHERE " + COL_RESOLVED + "=0" +
+                        " ORDER BY " + COL_DETECTED_AT + " DESC",
+                null
+        );
+
+        if (c.moveToFirst()) {
+            do {
+                list.add(new ConflictResolver.Conflict(
+                        c.getLong(0), c.getString(1), c.getString(2),
+                        c.getString(3), c.getString(4), c.getLong(5)));
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return list;
+    }
+
+    // NEW: Mark a conflict as reviewed
+    public void markConflictResolved(long conflictId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COL_RESOLVED, 1);
+
+        db.update(TABLE_CONFLICTS, values, COL_CONFLICT_ID + "=?",
+                new String[]{String.valueOf(conflictId)});
+        db.close();
+    }
+
     // Get all events (optimized with sync data)
     public List<EventsGridActivity.Event> getAllEvents() {
         List<EventsGridActivity.Event> list = new ArrayList<>();
@@ -175,7 +675,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             int idxSyncStatus = c.getColumnIndexOrThrow(COL_SYNC_STATUS);
 
             do {
-                int id = c.getInt(idxId);
+                long id = c.getLong(idxId);
                 String name = c.getString(idxName);
                 String date = c.getString(idxDate);
                 String time = c.getString(idxTime);
@@ -201,6 +701,176 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return list;
     }
 
+    // NEW: Slim projection for the list view (no description / recurrence / remote id),
+    // in chronological order
+    public List<EventsGridActivity.EventRow> getEventRows() {
+        return queryEventRows(null, null);
+    }
+
+    // NEW: The first `limit` list rows, for showing something before the full list loads
+    public List<EventsGridActivity.EventRow> getEventRows(int limit) {
+        return queryEventRows(null, null, false, limit);
+    }
+
+    // NEW: List rows with day_key in [fromDay, toDay), in chronological order
+    public List<EventsGridActivity.EventRow> getEventRowsInRange(long fromDay, long toDay) {
+        return queryEventRows(COL_DAY_KEY + " >= ? AND " + COL_DAY_KEY + " < ?",
+                new String[]{String.valueOf(fromDay), String.valueOf(toDay)});
+    }
+
+    // NEW: One agenda page of up to `limit` rows strictly after (forward) or before the
+    // position (dayKey, time, id), in chronological order. Keyset paging: a seek to any
+    // date is an index lookup, not an OFFSET walk over everything before it.
+    public List<EventsGridActivity.EventRow> getEventRowsPage(long dayKey, String time, long id,
+                                                              boolean forward, int limit) {
+        String op = forward ? " > ?" : " < ?";
+        // The leading range term lets SQLite seek idx_events_day_key to the key
+        // instead of scanning everything on one side of it; the OR only refines
+        // rows on the key's own day
+        String where = COL_DAY_KEY + (forward ? " >= ?" : " <= ?") + " AND (" +
+                COL_DAY_KEY + op + " OR (" + COL_DAY_KEY + " = ? AND (" +
+                COL_TIME + op + " OR (" + COL_TIME + " = ? AND " + COL_ID + op + "))))";
+        String key = String.valueOf(dayKey);
+        List<EventsGridActivity.EventRow> page = queryEventRows(where,
+                new String[]{key, key, key, time, time, String.valueOf(id)}, !forward, limit);
+        if (!forward) Collections.reverse(page);
+        return page;
+    }
+
+    private List<EventsGridActivity.EventRow> queryEventRows(String where, String[] args) {
+        return queryEventRows(where, args, false, 0);
+    }
+
+    private List<EventsGridActivity.EventRow> queryEventRows(String where, String[] args,
+                                                             boolean descending, int limit) {
+        String order = descending ? " DESC" : "";
+        List<EventsGridActivity.EventRow> list = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_ID + ", " + COL_NAME + ", " + COL_DATE + ", " + COL_TIME + ", " +
+                        COL_SYNC_STATUS + ", " + COL_DAY_KEY +
+                        " FROM " + TABLE_EVENTS +
+                        (where != null ? " WHERE " + where : "") +
+                        " ORDER BY " + COL_DAY_KEY + order + ", " + COL_TIME + order + ", " +
+                        COL_ID + order +
+                        (limit > 0 ? " LIMIT " + limit : ""),
+                args
+        );
+
+        if (c.moveToFirst()) {
+            do {
+                String syncStatus = c.getString(4);
+                if (syncStatus == null || syncStatus.isEmpty()) {
+                    syncStatus = SYNC_STATUS_LOCAL_ONLY;
+                }
+                long dayKey = c.isNull(5) ? DateTimeCodec.NO_DAY : c.getLong(5);
+                list.add(new EventsGridActivity.EventRow(
+                        c.getLong(0), c.getString(1), c.getString(2), c.getString(3), syncStatus,
+                        dayKey));
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return list;
+    }
+
+    // NEW: Events per day for [fromDay, toDay) from one aggregate query (index 0 = fromDay)
+    public int[] getDayCounts(long fromDay, long toDay) {
+        int[] counts = new int[(int) Math.max(0, toDay - fromDay)];
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_DAY_KEY + ", COUNT(*) FROM " + TABLE_EVENTS +
+                        " WHERE " + COL_DAY_KEY + " >= ? AND " + COL_DAY_KEY + " < ?" +
+                        " GROUP BY " + COL_DAY_KEY,
+                new String[]{String.valueOf(fromDay), String.valueOf(toDay)}
+        );
+
+        if (c.moveToFirst()) {
+            do {
+                counts[(int) (c.getLong(0) - fromDay)] = c.getInt(1);
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return counts;
+    }
+
+    // NEW: Recurring events dated before toDay, oldest first: the rows a calendar window
+    // expands forward (see EventRepository.CalendarWindowLiveData)
+    public List<EventsGridActivity.Event> getRecurringEventsBefore(long toDay) {
+        List<EventsGridActivity.Event> list = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_ID + ", " + COL_NAME + ", " + COL_DATE + ", " + COL_TIME + ", " +
+                        COL_RECURRENCE + ", " + COL_SYNC_STATUS +
+                        " FROM " + TABLE_EVENTS +
+                        " WHERE " + COL_DAY_KEY + " < ? AND " + COL_RECURRENCE + " <> ?" +
+                        " ORDER BY " + COL_DAY_KEY,
+                new String[]{String.valueOf(toDay), RECURRENCE_NONE}
+        );
+
+        if (c.moveToFirst()) {
+            do {
+                list.add(new EventsGridActivity.Event(c.getLong(0), c.getString(1), c.getString(2),
+                        c.getString(3), "", c.getString(4), null, c.getString(5)));
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return list;
+    }
+
+    // NEW: Full details of one event (loaded on demand), or null if it no longer exists
+    public EventsGridActivity.Event getEvent(long id) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_NAME + ", " + COL_DATE + ", " + COL_TIME + ", " +
+                        COL_DESC + ", " + COL_RECURRENCE + ", " + COL_REMOTE_ID + ", " +
+                        COL_SYNC_STATUS +
+                        " FROM " + TABLE_EVENTS +
+                        " WHERE " + COL_ID + "=?",
+                new String[]{String.valueOf(id)}
+        );
+
+        EventsGridActivity.Event event = null;
+        if (c.moveToFirst()) {
+            String recurrence = c.getString(4);
+            String syncStatus = c.getString(6);
+            if (recurrence == null || recurrence.isEmpty()) {
+                recurrence = RECURRENCE_NONE;
+            }
+            if (syncStatus == null || syncStatus.isEmpty()) {
+                syncStatus = SYNC_STATUS_LOCAL_ONLY;
+            }
+            event = new EventsGridActivity.Event(id, c.getString(0), c.getString(1), c.getString(2),
+                    c.getString(3), recurrence, c.getString(5), syncStatus);
+        }
+
+        c.close();
+        db.close();
+        return event;
+    }
+
+    // NEW: Number of events on a date (cheap check before dispatching today's alerts)
+    public int countEventsForDate(String date) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor c = db.rawQuery(
+                "SELECT COUNT(*) FROM " + TABLE_EVENTS + " WHERE " + COL_DATE + "=?",
+                new String[]{date}
+        );
+        int count = c.moveToFirst() ? c.getInt(0) : 0;
+        c.close();
+        db.close();
+        return count;
+    }
+
     // Get events for a specific date (with sync data)
     public List<EventsGridActivity.Event> getEventsForDate(String date) {
         List<EventsGridActivity.Event> list = new ArrayList<>();
@@ -225,7 +895,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             int idxSyncStatus = c.getColumnIndexOrThrow(COL_SYNC_STATUS);
 
             do {
-                int id = c.getInt(idxId);
+                long id = c.getLong(idxId);
                 String name = c.getString(idxName);
                 String time = c.getString(idxTime);
                 String desc = c.getString(idxDesc);
@@ -275,7 +945,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             int idxSyncStatus = c.getColumnIndexOrThrow(COL_SYNC_STATUS);
 
             do {
-                int id = c.getInt(idxId);
+                long id = c.getLong(idxId);
                 String name = c.getString(idxName);
                 String date = c.getString(idxDate);
                 String time = c.getString(idxTime);
@@ -297,21 +967,38 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return list;
     }
 
-    // NEW: Mark event as synced
-    public void markEventAsSynced(int localId, String remoteId) {
+    // NEW: Mark event as synced at the version the server assigned to the upload
+    public void markEventAsSynced(long localId, String remoteId, long remoteVersion) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COL_REMOTE_ID, remoteId);
         values.put(COL_SYNC_STATUS, SYNC_STATUS_SYNCED);
+        values.put(COL_REMOTE_VERSION, remoteVersion);
         values.put(COL_LAST_MODIFIED, System.currentTimeMillis());
 
         db.update(TABLE_EVENTS, values, COL_ID + "=?", new String[]{String.valueOf(localId)});
+
+        // The uploaded row is now the server copy, i.e. the base for future merges
+        db.execSQL("INSERT OR REPLACE INTO " + TABLE_SYNC_BASE + " (" +
+                        COL_REMOTE_ID + ", " + COL_NAME + ", " + COL_DATE + ", " + COL_TIME + ", " +
+                        COL_DESC + ", " + COL_RECURRENCE + ", " + COL_REMOTE_VERSION + ")" +
+                        " SELECT " + COL_REMOTE_ID + ", " + COL_NAME + ", " + COL_DATE + ", " +
+                        COL_TIME + ", " + COL_DESC + ", " + COL_RECURRENCE + ", " + COL_REMOTE_VERSION +
+                        " FROM " + TABLE_EVENTS + " WHERE " + COL_ID + "=?",
+                new Object[]{localId});
         db.close();
+        notifyEventsChanged();
     }
 
     // NEW: Check if remote event already exists
     public boolean eventExistsByRemoteId(String remoteId) {
         SQLiteDatabase db = this.getReadableDatabase();
+        boolean exists = remoteIdExists(db, remoteId);
+        db.close();
+        return exists;
+    }
+
+    private boolean remoteIdExists(SQLiteDatabase db, String remoteId) {
         Cursor c = db.rawQuery(
                 "SELECT " + COL_ID + " FROM " + TABLE_EVENTS +
                         " WHERE " + COL_REMOTE_ID + "=?",
@@ -319,17 +1006,387 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         );
         boolean exists = c.moveToFirst();
         c.close();
-        db.close();
         return exists;
     }
 
-    // Delete event
-    public void deleteEvent(int id) {
+    // Delete event (and its pending reminder)
+    public void deleteEvent(long id) {
+        deleteEvents(Collections.singletonList(id));
+    }
+
+    // NEW: Delete events and their pending reminders in one transaction
+    public int deleteEvents(List<Long> ids) {
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_EVENTS, COL_ID + "=?", new String[]{String.valueOf(id)});
+        int deleted = 0;
+
+        db.beginTransaction();
+        try {
+            SQLiteStatement deleteReminder = db.compileStatement(
+                    "DELETE FROM " + TABLE_REMINDERS + " WHERE " + COL_EVENT_ID + "=?");
+            SQLiteStatement deleteEvent = db.compileStatement(
+                    "DELETE FROM " + TABLE_EVENTS + " WHERE " + COL_ID + "=?");
+            for (long id : ids) {
+                deleteReminder.bindLong(1, id);
+                deleteReminder.executeUpdateDelete();
+                deleteEvent.bindLong(1, id);
+                deleted += deleteEvent.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            db.close();
+        }
+        if (deleted > 0) notifyEventsChanged();
+        return deleted;
+    }
+
+    // NEW: Add or move the reminder for an event
+    public void scheduleReminder(long eventId, long fireAt) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COL_EVENT_ID, eventId);
+        values.put(COL_FIRE_AT, fireAt);
+
+        db.insertWithOnConflict(TABLE_REMINDERS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
         db.close();
     }
 
+    // NEW: Earliest pending fire time (index lookup), or -1 if nothing is scheduled
+    public long getNextReminderTime() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor c = db.rawQuery(
+                "SELECT MIN(" + COL_FIRE_AT + ") FROM " + TABLE_REMINDERS,
+                null
+        );
+
+        long next = -1;
+        if (c.moveToFirst() && !c.isNull(0)) {
+            next = c.getLong(0);
+        }
+
+        c.close();
+        db.close();
+        return next;
+    }
+
+    // NEW: Reminders due at or before upTo, oldest first, with event details.
+    // Reminders whose event no longer exists come back with a null name.
+    public List<ReminderScheduler.DueReminder> getDueReminders(long upTo) {
+        List<ReminderScheduler.DueReminder> list = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT r." + COL_EVENT_ID + ", r." + COL_FIRE_AT + ", e." + COL_NAME + ", e." +
+                        COL_TIME + ", e." + COL_RECURRENCE + ", e." + COL_DATE +
+                        " FROM " + TABLE_REMINDERS + " r" +
+                        " LEFT JOIN " + TABLE_EVENTS + " e ON e." + COL_ID + " = r." + COL_EVENT_ID +
+                        " WHERE r." + COL_FIRE_AT + " <= ?" +
+                        " ORDER BY r." + COL_FIRE_AT,
+                new String[]{String.valueOf(upTo)}
+        );
+
+        if (c.moveToFirst()) {
+            do {
+                String recurrence = c.getString(4);
+                if (recurrence == null || recurrence.isEmpty()) {
+                    recurrence = RECURRENCE_NONE;
+                }
+                list.add(new ReminderScheduler.DueReminder(
+                        c.getLong(0), c.getString(2), c.getString(5), c.getString(3),
+                        recurrence, c.getLong(1)));
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return list;
+    }
+
+    // NEW: Pending reminders with their event's wall-clock date/time (for time zone rebasing)
+    public List<ReminderTime> getReminderTimes() {
+        List<ReminderTime> list = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT r." + COL_EVENT_ID + ", r." + COL_FIRE_AT + ", e." + COL_DATE + ", e." + COL_TIME +
+                        " FROM " + TABLE_REMINDERS + " r" +
+                        " JOIN " + TABLE_EVENTS + " e ON e." + COL_ID + " = r." + COL_EVENT_ID,
+                null
+        );
+
+        if (c.moveToFirst()) {
+            do {
+                list.add(new ReminderTime(c.getLong(0), c.getLong(1), c.getString(2), c.getString(3)));
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return list;
+    }
+
+    // NEW: Write back the reminders flagged as changed, in one transaction
+    public void updateReminderTimes(List<ReminderTime> reminders) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (ReminderTime reminder : reminders) {
+                if (!reminder.changed) continue;
+                values.put(COL_FIRE_AT, reminder.fireAt);
+                db.update(TABLE_REMINDERS, values, COL_EVENT_ID + "=?",
+                        new String[]{String.valueOf(reminder.eventId)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            db.close();
+        }
+    }
+
+    // NEW: Fire time of the alarm currently registered with the OS (-1 = none)
+    public long getArmedReminderTime() {
+        String value = getSyncMetadata(META_ARMED_FIRE_AT);
+        return value != null ? Long.parseLong(value) : -1;
+    }
+
+    public void setArmedReminderTime(long fireAt) {
+        setSyncMetadata(META_ARMED_FIRE_AT, String.valueOf(fireAt));
+    }
+
+    // NEW: Remove a reminder once it has been dispatched
+    public void removeReminder(long eventId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_REMINDERS, COL_EVENT_ID + "=?", new String[]{String.valueOf(eventId)});
+        db.close();
+    }
+
+    // NEW: Remove delivered reminders in one transaction. A reminder moved to a new
+    // time while its batch was being delivered (fire_at changed) is kept.
+    public void removeDispatchedReminders(List<ReminderScheduler.DueReminder> reminders) {
+        if (reminders.isEmpty()) return;
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        db.beginTransaction();
+        try {
+            SQLiteStatement delete = db.compileStatement(
+                    "DELETE FROM " + TABLE_REMINDERS +
+                            " WHERE " + COL_EVENT_ID + "=? AND " + COL_FIRE_AT + "=?");
+            for (ReminderScheduler.DueReminder reminder : reminders) {
+                delete.bindLong(1, reminder.eventId);
+                delete.bindLong(2, reminder.fireAt);
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            db.close();
+        }
+    }
+
+    // NEW: Queue SMS messages (one per body) in a single transaction
+    public void enqueueSms(String destination, List<String> bodies) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        long now = System.currentTimeMillis();
+
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (String body : bodies) {
+                values.put(COL_SMS_DESTINATION, destination);
+                values.put(COL_SMS_BODY, body);
+                values.put(COL_SMS_STATUS, SMS_STATUS_QUEUED);
+                values.put(COL_SMS_NEXT_ATTEMPT, now);
+                values.put(COL_SMS_CREATED_AT, now);
+                db.insert(TABLE_SMS_OUTBOX, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            db.close();
+        }
+    }
+
+    // NEW: Messages ready to send now, oldest first
+    public List<SmsDispatcher.OutgoingSms> getSendableSms(long now, int limit) {
+        List<SmsDispatcher.OutgoingSms> list = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_SMS_ID + ", " + COL_SMS_DESTINATION + ", " + COL_SMS_BODY + ", " +
+                        COL_SMS_ATTEMPTS +
+                        " FROM " + TABLE_SMS_OUTBOX +
+                        " WHERE " + COL_SMS_STATUS + "=? AND " + COL_SMS_NEXT_ATTEMPT + " <= ?" +
+                        " ORDER BY " + COL_SMS_ID +
+                        " LIMIT " + limit,
+                new String[]{SMS_STATUS_QUEUED, String.valueOf(now)}
+        );
+
+        if (c.moveToFirst()) {
+            do {
+                list.add(new SmsDispatcher.OutgoingSms(
+                        c.getLong(0), c.getString(1), c.getString(2), c.getInt(3)));
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return list;
+    }
+
+    // NEW: Earliest retry/send time among queued messages, or -1 if the outbox is empty
+    public long getNextSmsAttemptTime() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor c = db.rawQuery(
+                "SELECT MIN(" + COL_SMS_NEXT_ATTEMPT + ") FROM " + TABLE_SMS_OUTBOX +
+                        " WHERE " + COL_SMS_STATUS + "=?",
+                new String[]{SMS_STATUS_QUEUED}
+        );
+
+        long next = -1;
+        if (c.moveToFirst() && !c.isNull(0)) {
+            next = c.getLong(0);
+        }
+
+        c.close();
+        db.close();
+        return next;
+    }
+
+    // NEW: Earliest sent_at among messages still waiting for their sent report, or -1
+    public long getOldestSmsSendingTime() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor c = db.rawQuery(
+                "SELECT MIN(" + COL_SMS_SENT_AT + ") FROM " + TABLE_SMS_OUTBOX +
+                        " WHERE " + COL_SMS_STATUS + "=?",
+                new String[]{SMS_STATUS_SENDING}
+        );
+
+        long oldest = -1;
+        if (c.moveToFirst() && !c.isNull(0)) {
+            oldest = c.getLong(0);
+        }
+
+        c.close();
+        db.close();
+        return oldest;
+    }
+
+    // NEW: Number of messages handed to the radio since the given time (rate limiting)
+    public int countSmsSentSince(long since) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor c = db.rawQuery(
+                "SELECT COUNT(*) FROM " + TABLE_SMS_OUTBOX +
+                        " WHERE " + COL_SMS_SENT_AT + " >= ?",
+                new String[]{String.valueOf(since)}
+        );
+
+        int count = c.moveToFirst() ? c.getInt(0) : 0;
+        c.close();
+        db.close();
+        return count;
+    }
+
+    // NEW: Message handed to SmsManager; wait for its sent callbacks
+    public void markSmsSending(long id, int partsTotal, long now) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COL_SMS_STATUS, SMS_STATUS_SENDING);
+        values.put(COL_SMS_PARTS_TOTAL, partsTotal);
+        values.put(COL_SMS_PARTS_SENT, 0);
+        values.put(COL_SMS_SENT_AT, now);
+
+        db.update(TABLE_SMS_OUTBOX, values, COL_SMS_ID + "=?", new String[]{String.valueOf(id)});
+        db.close();
+    }
+
+    // NEW: One part was sent; the message is SENT once every part is
+    public void markSmsPartSent(long id) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.execSQL("UPDATE " + TABLE_SMS_OUTBOX + " SET " +
+                        COL_SMS_PARTS_SENT + " = " + COL_SMS_PARTS_SENT + " + 1, " +
+                        COL_SMS_STATUS + " = CASE WHEN " + COL_SMS_PARTS_SENT + " + 1 >= " +
+                        COL_SMS_PARTS_TOTAL + " THEN '" + SMS_STATUS_SENT + "' ELSE " +
+                        COL_SMS_STATUS + " END" +
+                        " WHERE " + COL_SMS_ID + "=? AND " + COL_SMS_STATUS + "=?",
+                new Object[]{id, SMS_STATUS_SENDING});
+        db.close();
+    }
+
+    // NEW: Delivery report received
+    public void markSmsDelivered(long id) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COL_SMS_STATUS, SMS_STATUS_DELIVERED);
+
+        db.update(TABLE_SMS_OUTBOX, values, COL_SMS_ID + "=?", new String[]{String.valueOf(id)});
+        db.close();
+    }
+
+    /**
+     * NEW: A send failed. Puts the message back in the queue at nextAttemptAt, or
+     * marks it FAILED once maxAttempts is reached. Only the first failing part of
+     * a multipart message counts.
+     *
+     * @return true if this call recorded the failure
+     */
+    public boolean recordSmsFailure(long id, long nextAttemptAt, int maxAttempts) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement stmt = db.compileStatement("UPDATE " + TABLE_SMS_OUTBOX + " SET " +
+                COL_SMS_ATTEMPTS + " = " + COL_SMS_ATTEMPTS + " + 1, " +
+                COL_SMS_NEXT_ATTEMPT + " = ?, " +
+                COL_SMS_STATUS + " = CASE WHEN " + COL_SMS_ATTEMPTS + " + 1 >= ? THEN '" +
+                SMS_STATUS_FAILED + "' ELSE '" + SMS_STATUS_QUEUED + "' END" +
+                " WHERE " + COL_SMS_ID + "=? AND " + COL_SMS_STATUS + "=?");
+        stmt.bindLong(1, nextAttemptAt);
+        stmt.bindLong(2, maxAttempts);
+        stmt.bindLong(3, id);
+        stmt.bindString(4, SMS_STATUS_SENDING);
+
+        boolean recorded = stmt.executeUpdateDelete() > 0;
+        stmt.close();
+        db.close();
+        return recorded;
+    }
+
+    // NEW: Messages whose sent callback never arrived (e.g. process was killed); the
+    // dispatcher records each as a failed attempt, so backoff and the attempt cap apply
+    public List<Long> getStaleSmsIds(long sentBefore) {
+        List<Long> ids = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_SMS_ID + " FROM " + TABLE_SMS_OUTBOX +
+                        " WHERE " + COL_SMS_STATUS + "=? AND " + COL_SMS_SENT_AT + " < ?",
+                new String[]{SMS_STATUS_SENDING, String.valueOf(sentBefore)}
+        );
+
+        if (c.moveToFirst()) {
+            do {
+                ids.add(c.getLong(0));
+            } while (c.moveToNext());
+        }
+
+        c.close();
+        db.close();
+        return ids;
+    }
+
+    // NEW: Attempts made so far for a message (used for backoff)
+    public int getSmsAttempts(long id) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor c = db.rawQuery(
+                "SELECT " + COL_SMS_ATTEMPTS + " FROM " + TABLE_SMS_OUTBOX +
+                        " WHERE " + COL_SMS_ID + "=?",
+                new String[]{String.valueOf(id)}
+        );
+
+        int attempts = c.moveToFirst() ? c.getInt(0) : 0;
+        c.close();
+        db.close();
+        return attempts;
+    }
+
     // Create user
     public boolean createUser(String username, String password) {
         SQLiteDatabase db = this.getWritableDatabase();
@@ -395,8 +1452,33 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return value != null ? Long.parseLong(value) : 0;
     }
 
+    // NEW: Reconciliation flag (set on database creation, or explicitly after a restore)
+    public boolean isReconcileRequested() {
+        return "1".equals(getSyncMetadata(META_RECONCILE_REQUESTED));
+    }
+
+    public void setReconcileRequested(boolean requested) {
+        setSyncMetadata(META_RECONCILE_REQUESTED, requested ? "1" : "0");
+    }
+
     // NEW: Update last sync timestamp
     public void updateLastSyncTimestamp() {
         setSyncMetadata("last_sync_timestamp", String.valueOf(System.currentTimeMillis()));
     }
+
+    // NEW: A pending reminder plus the event date/time it was computed from
+    public static class ReminderTime {
+        public final long eventId;
+        public long fireAt;
+        public final String date;
+        public final String time;
+        public boolean changed;
+
+        public ReminderTime(long eventId, long fireAt, String date, String time) {
+            this.eventId = eventId;
+            this.fireAt = fireAt;
+            this.date = date;
+            this.time = time;
+        }
+    }
 }
@@ -0,0 +1,201 @@
+package com.example.projectthree_sunnynguyen;
+
+import java.util.TimeZone;
+
+/**
+ * DateTimeCodec converts the app's stored date and time strings to and from
+ * primitive values:
+ *
+ * - "MM/dd/yyyy" dates to and from epoch days (days since 1970-01-01)
+ * - "HH:mm" times (24-hour) to and from the minute of the day
+ *
+ * It replaces the SimpleDateFormat / Calendar code paths. It is stateless, so
+ * one codec serves the UI, receivers and sync threads alike, and parsing
+ * scans characters directly: no Date, Calendar, split() or substring() per call.
+ * Parsing is strict: a day past the end of its month is rejected rather than
+ * rolled into the next month the way a lenient SimpleDateFormat did.
+ */
+public final class DateTimeCodec {
+
+    // Returned by parseDate for dates that cannot be parsed
+    public static final long NO_DAY = Long.MIN_VALUE;
+    // Returned by parseTime for times that cannot be parsed
+    public static final int NO_TIME = -1;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private DateTimeCodec() {
+    }
+
+    /**
+     * Epoch day of a "MM/dd/yyyy" date (one-digit month/day accepted), or {@link #NO_DAY}.
+     */
+    public static long parseDate(CharSequence date) {
+        if (date == null) return NO_DAY;
+        int end = trimEnd(date);
+        int pos = trimStart(date, end);
+
+        int month = 0, day = 0, year = 0;
+        int digits = 0;
+        int field = 0;
+        for (; pos < end; pos++) {
+            char ch = date.charAt(pos);
+            if (ch == '/') {
+                if (digits == 0 || field == 2) return NO_DAY;
+                field++;
+                digits = 0;
+                continue;
+            }
+            if (ch < '0' || ch > '9' || ++digits > (field == 2 ? 4 : 2)) return NO_DAY;
+            int digit = ch - '0';
+            if (field == 0) month = month * 10 + digit;
+            else if (field == 1) day = day * 10 + digit;
+            else year = year * 10 + digit;
+        }
+        if (field != 2 || digits != 4) return NO_DAY;
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) return NO_DAY;
+        return daysFromCivil(year, month, day);
+    }
+
+    /**
+     * Minute of the day of an "HH:mm" time (one-digit hour accepted), or {@link #NO_TIME}.
+     */
+    public static int parseTime(CharSequence time) {
+        if (time == null) return NO_TIME;
+        int end = trimEnd(time);
+        int pos = trimStart(time, end);
+
+        int hour = 0;
+        int hourDigits = 0;
+        for (; pos < end && time.charAt(pos) != ':'; pos++) {
+            char ch = time.charAt(pos);
+            if (ch < '0' || ch > '9' || ++hourDigits > 2) return NO_TIME;
+            hour = hour * 10 + (ch - '0');
+        }
+        // Exactly two minute digits after the colon
+        if (hourDigits == 0 || end - pos != 3) return NO_TIME;
+        char tens = time.charAt(pos + 1);
+        char ones = time.charAt(pos + 2);
+        if (tens < '0' || tens > '5' || ones < '0' || ones > '9' || hour > 23) return NO_TIME;
+        return hour * 60 + (tens - '0') * 10 + (ones - '0');
+    }
+
+    /**
+     * "MM/dd/yyyy" for an epoch day.
+     */
+    public static String formatDate(long epochDay) {
+        int[] ymd = civilFromDays(epochDay);
+        char[] out = new char[10];
+        putTwoDigits(out, 0, ymd[1]);
+        out[2] = '/';
+        putTwoDigits(out, 3, ymd[2]);
+        out[5] = '/';
+        putTwoDigits(out, 6, ymd[0] / 100);
+        putTwoDigits(out, 8, ymd[0] % 100);
+        return new String(out);
+    }
+
+    /**
+     * "HH:mm" for a minute of the day.
+     */
+    public static String formatTime(int minuteOfDay) {
+        char[] out = new char[5];
+        putTwoDigits(out, 0, minuteOfDay / 60);
+        out[2] = ':';
+        putTwoDigits(out, 3, minuteOfDay % 60);
+        return new String(out);
+    }
+
+    /**
+     * Local epoch day of an instant.
+     */
+    public static long epochDayOf(long instant, TimeZone tz) {
+        return Math.floorDiv(instant + tz.getOffset(instant), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Instant of a local wall-clock day and minute (two offset lookups handle DST).
+     */
+    public static long toEpochMillis(long epochDay, int minuteOfDay, TimeZone tz) {
+        long local = epochDay * MILLIS_PER_DAY + minuteOfDay * MILLIS_PER_MINUTE;
+        long guess = local - tz.getOffset(local);
+        return local - tz.getOffset(guess);
+    }
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date (H. Hinnant's algorithm).
+     */
+    public static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * year * 12 + (month - 1) of an epoch day; the month part of
+     * {@link #civilFromDays} without allocating, for per-step date arithmetic.
+     */
+    public static long monthIndexOf(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+
+    /**
+     * Inverse of {@link #daysFromCivil}: {year, month, day}.
+     */
+    public static int[] civilFromDays(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[]{year, month, day};
+    }
+
+    public static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static void putTwoDigits(char[] out, int at, int value) {
+        out[at] = (char) ('0' + value / 10);
+        out[at + 1] = (char) ('0' + value % 10);
+    }
+
+    private static int trimEnd(CharSequence s) {
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) <= ' ') end--;
+        return end;
+    }
+
+    private static int trimStart(CharSequence s, int end) {
+        int start = 0;
+        while (start < end && s.charAt(start) <= ' ') start++;
+        return start;
+    }
+}
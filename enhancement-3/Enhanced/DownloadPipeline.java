@@ -0,0 +1,105 @@
+package com.example.projectthree_sunnynguyen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * DownloadPipeline overlaps network and database work during a sync.
+ *
+ * A producer on the network executor downloads and decodes pages of event
+ * bodies and puts them on a bounded queue; the calling thread takes pages off
+ * the queue and applies each one in its own transaction. When the database
+ * falls behind, the producer blocks on the full queue (backpressure), so at
+ * most QUEUE_CAPACITY pages are held in memory at once.
+ *
+ * Total time approaches max(network, disk) instead of network + disk.
+ */
+public class DownloadPipeline {
+
+    // Pages buffered between the stages (each page is up to pageSize events)
+    private static final int QUEUE_CAPACITY = 4;
+
+    // End-of-stream marker, compared by identity
+    private static final List<ApiService.RemoteEvent> END = new ArrayList<>();
+
+    /** Network stage: download and decode one page of bodies. */
+    public interface PageSource {
+        List<ApiService.RemoteEvent> fetch(List<String> remoteIds) throws Exception;
+    }
+
+    /** Database stage: apply one page (in a single transaction). */
+    public interface PageSink {
+        int apply(List<ApiService.RemoteEvent> page);
+    }
+
+    private final ExecutorService networkExecutor;
+    private final PageSource source;
+    private final PageSink sink;
+
+    public DownloadPipeline(ExecutorService networkExecutor, PageSource source, PageSink sink) {
+        this.networkExecutor = networkExecutor;
+        this.source = source;
+        this.sink = sink;
+    }
+
+    /**
+     * Download and apply the given remote IDs, pageSize at a time.
+     * Runs the database stage on the calling thread and blocks until done.
+     *
+     * @return number of rows inserted or updated
+     * @throws Exception the first failure from either stage
+     */
+    public int run(List<String> remoteIds, int pageSize) throws Exception {
+        if (remoteIds.isEmpty()) {
+            return 0;
+        }
+
+        BlockingQueue<List<ApiService.RemoteEvent>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<Exception> producerError = new AtomicReference<>();
+
+        Future<?> producer = networkExecutor.submit(() -> {
+            try {
+                try {
+                    for (int start = 0; start < remoteIds.size(); start += pageSize) {
+                        List<String> page = remoteIds.subList(start,
+                                Math.min(start + pageSize, remoteIds.size()));
+                        queue.put(source.fetch(page));
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    producerError.set(e);
+                }
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // Consumer gave up; nobody is waiting for the end marker
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        int applied = 0;
+        try {
+            while (true) {
+                List<ApiService.RemoteEvent> page = queue.take();
+                if (page == END) {
+                    break;
+                }
+                applied += sink.apply(page);
+            }
+        } catch (Exception e) {
+            producer.cancel(true);
+            throw e;
+        }
+
+        Exception error = producerError.get();
+        if (error != null) {
+            throw error;
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.projectthree_sunnynguyen;
+
+/**
+ * EventHashTree is a fixed-shape Merkle tree over synced events, used for
+ * anti-entropy reconciliation with the server.
+ *
+ * Events are bucketed by month (months since January 2000, clamped to
+ * LEAF_COUNT buckets). Each leaf hash is the XOR of its entries' hashes, so it
+ * does not depend on row order. Internal nodes combine their two children.
+ * Nodes are addressed heap-style: root = 1, children of n = 2n and 2n + 1,
+ * leaves = LEAF_COUNT .. 2 * LEAF_COUNT - 1.
+ *
+ * The server builds the same tree with the same hash functions, so comparing
+ * node hashes level by level finds the drifted buckets in O(differences x log n)
+ * round-trip work instead of comparing every event.
+ */
+public class EventHashTree {
+
+    // 1024 monthly buckets: January 2000 through April 2085
+    public static final int LEAF_COUNT = 1024;
+    public static final int ROOT = 1;
+
+    private static final int BASE_YEAR = 2000;
+
+    private final long[] nodes = new long[2 * LEAF_COUNT];
+    private boolean dirty;
+
+    /**
+     * Add one event (identified by remote_id + version) to its month bucket.
+     */
+    public void add(Entry entry) {
+        nodes[LEAF_COUNT + bucketOf(entry.date)] ^= entryHash(entry.remoteId, entry.version);
+        dirty = true;
+    }
+
+    /**
+     * Hash of a node (heap index). Internal nodes are recomputed lazily after adds.
+     */
+    public long hash(int node) {
+        if (dirty) {
+            for (int n = LEAF_COUNT - 1; n >= ROOT; n--) {
+                nodes[n] = combine(nodes[2 * n], nodes[2 * n + 1]);
+            }
+            dirty = false;
+        }
+        return nodes[node];
+    }
+
+    public static boolean isLeaf(int node) {
+        return node >= LEAF_COUNT;
+    }
+
+    public static int bucketOfLeaf(int node) {
+        return node - LEAF_COUNT;
+    }
+
+    /**
+     * Month bucket for a MM/dd/yyyy date. Unparseable dates go to bucket 0.
+     */
+    public static int bucketOf(String date) {
+        if (date == null || date.length() != 10) return 0;
+        int month = digits(date, 0, 2);
+        int year = digits(date, 6, 10);
+        if (month < 1 || month > 12 || year < 0) return 0;
+
+        int bucket = (year - BASE_YEAR) * 12 + (month - 1);
+        return Math.max(0, Math.min(LEAF_COUNT - 1, bucket));
+    }
+
+    /**
+     * FNV-1a over the remote_id characters, mixed with the version and finalized.
+     */
+    static long entryHash(String remoteId, long version) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < remoteId.length(); i++) {
+            h ^= remoteId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h ^ mix(version));
+    }
+
+    /**
+     * Parent hash. Two empty children give an empty parent, so untouched
+     * time ranges stay zero on both sides.
+     */
+    static long combine(long left, long right) {
+        if (left == 0 && right == 0) return 0;
+        return mix(left * 31 + right);
+    }
+
+    // MurmurHash3 64-bit finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * One event as seen by the tree: identity, version and the date that picks its bucket.
+     */
+    public static class Entry {
+        public final String remoteId;
+        public final long version;
+        public final String date;
+        // false when the row has local edits that have not been uploaded yet
+        public final boolean synced;
+
+        public Entry(String remoteId, long version, String date, boolean synced) {
+            this.remoteId = remoteId;
+            this.version = version;
+            this.date = date;
+            this.synced = synced;
+        }
+    }
+
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
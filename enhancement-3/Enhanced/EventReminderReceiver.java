@@ -1,190 +1,238 @@
-package com.example.projectthree_sunnynguyen;
-
-import android.Manifest;
-import android.app.AlarmManager;
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
-import android.content.BroadcastReceiver;
-import android.content.Context;
-import android.content.Intent;
-import android.content.SharedPreferences;
-import android.content.pm.PackageManager;
-import android.os.Build;
-import android.telephony.SmsManager;
-
-import androidx.core.app.ActivityCompat;
-import androidx.core.app.NotificationCompat;
-
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
-
-public class EventReminderReceiver extends BroadcastReceiver {
-
-    private static final String EXTRA_RECURRENCE = "recurrence_type";
-
-    @Override
-    public void onReceive(Context context, Intent intent) {
-        // Get event data from the intent
-        String eventName = intent.getStringExtra("name");
-        String eventTime = intent.getStringExtra("time");
-        String recurrenceType = intent.getStringExtra(EXTRA_RECURRENCE);
-        if (recurrenceType == null) {
-            recurrenceType = DatabaseHelper.RECURRENCE_NONE;
-        }
-
-        // Load user preference for SMS notifications
-        SharedPreferences prefs = context.getSharedPreferences("prefs", Context.MODE_PRIVATE);
-        boolean smsEnabled = prefs.getBoolean("sms_enabled", false);
-
-        if (smsEnabled &&
-                ActivityCompat.checkSelfPermission(context, Manifest.permission.SEND_SMS)
-                        == PackageManager.PERMISSION_GRANTED) {
-            // ✅ Send SMS reminder
-            try {
-                SmsManager smsManager = SmsManager.getDefault();
-                // Replace "5555555555" with your test phone number or dynamic user number
-                smsManager.sendTextMessage(
-                        "5555555555",
-                        null,
-                        "Reminder: " + eventName + " at " + eventTime,
-                        null,
-                        null
-                );
-            } catch (Exception e) {
-                e.printStackTrace();
-                showNotification(context, "SMS failed",
-                        "Could not send SMS for event: " + eventName);
-            }
-        } else {
-            // 🚨 Fallback to app notification
-            showNotification(context, "Event Today",
-                    eventName + " at " + eventTime);
-        }
-
-        // 🔁 Auto-generate next occurrence if this is a recurring event
-        if (!DatabaseHelper.RECURRENCE_NONE.equals(recurrenceType)) {
-            generateNextRecurringEvent(context, eventName, eventTime, recurrenceType);
-        }
-    }
-
-    /**
-     * Creates the next event row and schedules the next alarm based on recurrence type.
-     * This matches the "generateNextRecurringEvent" idea from your script.
-     */
-    private void generateNextRecurringEvent(Context context,
-                                            String eventName,
-                                            String eventTime,
-                                            String recurrenceType) {
-        SimpleDateFormat df = new SimpleDateFormat("MM/dd/yyyy", Locale.US);
-        SimpleDateFormat tf = new SimpleDateFormat("HH:mm", Locale.US);
-
-        Calendar now = Calendar.getInstance();
-
-        // Parse the time (HH:mm) into a Calendar
-        Calendar timeCal = Calendar.getInstance();
-        try {
-            Date parsedTime = tf.parse(eventTime);
-            if (parsedTime != null) {
-                timeCal.setTime(parsedTime);
-            }
-        } catch (ParseException e) {
-            // If time can't be parsed, just stop (no new alarm)
-            return;
-        }
-
-        // Base = "now" date + original time
-        Calendar next = Calendar.getInstance();
-        next.set(
-                now.get(Calendar.YEAR),
-                now.get(Calendar.MONTH),
-                now.get(Calendar.DAY_OF_MONTH),
-                timeCal.get(Calendar.HOUR_OF_DAY),
-                timeCal.get(Calendar.MINUTE),
-                0
-        );
-        next.set(Calendar.MILLISECOND, 0);
-
-        // Move to the next recurrence slot
-        switch (recurrenceType) {
-            case DatabaseHelper.RECURRENCE_DAILY:
-                next.add(Calendar.DAY_OF_YEAR, 1);
-                break;
-            case DatabaseHelper.RECURRENCE_WEEKLY:
-                next.add(Calendar.WEEK_OF_YEAR, 1);
-                break;
-            case DatabaseHelper.RECURRENCE_MONTHLY:
-                next.add(Calendar.MONTH, 1);
-                break;
-            default:
-                return;
-        }
-
-        String nextDateString = df.format(next.getTime());
-        String nextTimeString = tf.format(next.getTime());
-
-        // Insert next event row in SQLite
-        DatabaseHelper helper = new DatabaseHelper(context);
-        long newId = helper.insertEvent(
-                eventName,
-                nextDateString,
-                nextTimeString,
-                "",
-                recurrenceType
-        );
-
-        // Schedule new alarm for the next occurrence
-        Intent i = new Intent(context, EventReminderReceiver.class);
-        i.putExtra("name", eventName);
-        i.putExtra("time", nextTimeString);
-        i.putExtra(EXTRA_RECURRENCE, recurrenceType);
-
-        PendingIntent pi = PendingIntent.getBroadcast(
-                context,
-                (int) newId,
-                i,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        if (am == null) return;
-
-        long triggerAt = next.getTimeInMillis();
-
-        if (Build.VERSION.SDK_INT >= 31) {
-            am.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pi);
-        } else if (Build.VERSION.SDK_INT >= 23) {
-            am.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pi);
-        } else {
-            am.setExact(AlarmManager.RTC_WAKEUP, triggerAt, pi);
-        }
-    }
-
-    private void showNotification(Context context, String title, String message) {
-        String channelId = "event_channel";
-        NotificationManager notificationManager =
-                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                    channelId,
-                    "Event Reminders",
-                    NotificationManager.IMPORTANCE_DEFAULT
-            );
-            notificationManager.createNotificationChannel(channel);
-        }
-
-        Notification notification = new NotificationCompat.Builder(context, channelId)
-                .setSmallIcon(android.R.drawable.ic_dialog_info)
-                .setContentTitle(title)
-                .setContentText(message)
-                .setAutoCancel(true)
-                .build();
-
-        notificationManager.notify((int) System.currentTimeMillis(), notification);
-    }
-}
+package com.example.projectthree_sunnynguyen;
+
+import android.Manifest;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.core.app.ActivityCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+public class EventReminderReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "EventReminderReceiver";
+
+    // One broadcast that alerts for every event on EXTRA_DATE ("Send Today's Alerts")
+    public static final String ACTION_SEND_TODAYS_ALERTS =
+            "com.example.projectthree_sunnynguyen.action.SEND_TODAYS_ALERTS";
+    public static final String EXTRA_DATE = "date";
+
+    // Work budget per broadcast, kept well under the ~10s receiver limit
+    private static final long TIME_BUDGET_MS = 8000;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        // Keep the broadcast alive while the work runs on the shared DB thread,
+        // so a burst of alarms is processed in order without a thread per broadcast
+        final PendingResult pendingResult = goAsync();
+        final Context appContext = context.getApplicationContext();
+        final long deadline = SystemClock.elapsedRealtime() + TIME_BUDGET_MS;
+
+        AppExecutors.from(context).db().execute(() -> {
+            try {
+                handleReminder(appContext, intent, deadline);
+            } catch (Exception e) {
+                Log.e(TAG, "Reminder handling failed", e);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+
+    private void handleReminder(Context context, Intent intent, long deadline) {
+        // The scheduler's single alarm: dispatch everything that is due, then re-arm
+        if (ReminderScheduler.ACTION_REMINDERS_DUE.equals(intent.getAction())) {
+            dispatchDueReminders(context, deadline);
+            return;
+        }
+
+        if (ACTION_SEND_TODAYS_ALERTS.equals(intent.getAction())) {
+            sendAlertsForDate(context, intent.getStringExtra(EXTRA_DATE), deadline);
+        }
+    }
+
+    /**
+     * Alert for every event on a date in one pass: one query, one channel check,
+     * one digest notification or one SMS outbox batch. This only delivers
+     * messages: the next occurrence of a recurring event is created when its
+     * own reminder fires, so pressing the button (even twice) adds no rows.
+     */
+    private void sendAlertsForDate(Context context, String date, long deadline) {
+        if (date == null) return;
+
+        DatabaseHelper db = new DatabaseHelper(context);
+        boolean smsEnabled = isSmsEnabled(context);
+        long now = System.currentTimeMillis();
+
+        List<ReminderScheduler.DueReminder> toNotify = new ArrayList<>();
+        List<String> smsBodies = new ArrayList<>();
+
+        for (EventsGridActivity.Event e : db.getEventsForDate(date)) {
+            if (SystemClock.elapsedRealtime() >= deadline) {
+                Log.w(TAG, "Time budget used up, skipping remaining alerts");
+                break;
+            }
+            if (smsEnabled) {
+                smsBodies.add(smsBody(e.name, e.time));
+            } else {
+                toNotify.add(new ReminderScheduler.DueReminder(
+                        e.id, e.name, e.date, e.time, e.recurrenceType, now));
+            }
+        }
+
+        deliver(context, toNotify, smsBodies, toNotify.size() + " events today");
+    }
+
+    /**
+     * Fire every reminder whose time has come, then arm the alarm for the next one.
+     * Reminders due within the coalescing window are fired together, so one wakeup
+     * and one digest notification cover a burst.
+     * If the time budget runs out, the rest stay queued; the re-armed alarm is
+     * then already due, so they are picked up by an immediate follow-up broadcast.
+     * Reminder rows are removed only after the batch has been delivered, so a
+     * failure or a killed process before that re-fires them instead of losing them.
+     */
+    private void dispatchDueReminders(Context context, long deadline) {
+        DatabaseHelper db = new DatabaseHelper(context);
+        long now = System.currentTimeMillis();
+        long upTo = now + ReminderScheduler.COALESCE_WINDOW_MS;
+
+        // Resolve the delivery channel once for the whole batch
+        boolean smsEnabled = isSmsEnabled(context);
+        List<ReminderScheduler.DueReminder> toNotify = new ArrayList<>();
+        List<String> smsBodies = new ArrayList<>();
+        List<String> catchUpLines = new ArrayList<>();
+        List<ReminderScheduler.DueReminder> dispatched = new ArrayList<>();
+
+        for (ReminderScheduler.DueReminder reminder : db.getDueReminders(upTo)) {
+            if (SystemClock.elapsedRealtime() >= deadline) {
+                Log.w(TAG, "Time budget used up, deferring remaining reminders");
+                break;
+            }
+            dispatched.add(reminder);
+            if (reminder.name == null) {
+                continue; // event was deleted after it was scheduled
+            }
+
+            if (smsEnabled) {
+                smsBodies.add(smsBody(reminder.name, reminder.time));
+            } else {
+                toNotify.add(reminder);
+            }
+        }
+
+        deliver(context, toNotify, smsBodies, toNotify.size() + " events now");
+
+        // Delivered: schedule what comes next, then drop the fired rows together
+        for (ReminderScheduler.DueReminder reminder : dispatched) {
+            if (reminder.name == null
+                    || DatabaseHelper.RECURRENCE_NONE.equals(reminder.recurrenceType)) {
+                continue;
+            }
+            long missed = generateNextRecurringEvent(context, reminder.name, reminder.date,
+                    reminder.time, reminder.recurrenceType, now);
+            if (missed > 0) {
+                catchUpLines.add(reminder.name + " (" + missed + " missed)");
+            }
+        }
+        db.removeDispatchedReminders(dispatched);
+
+        // Occurrences skipped while the device was off: one summary, not one alert each
+        if (!catchUpLines.isEmpty() && isCatchUpSummaryEnabled(context)) {
+            new ReminderNotifier(context).notifyMessage("Missed while your device was off",
+                    TextUtils.join(", ", catchUpLines));
+        }
+
+        // The alarm that brought us here has been consumed, so always re-register
+        new ReminderScheduler(context).rearm(true);
+    }
+
+    /**
+     * Post the batch as one digest (or keyed) notification and queue the SMS
+     * bodies as one outbox batch; the dispatcher handles rate limits and retries.
+     */
+    private void deliver(Context context,
+                         List<ReminderScheduler.DueReminder> toNotify,
+                         List<String> smsBodies,
+                         String digestTitle) {
+        new ReminderNotifier(context).notifyReminders(toNotify, digestTitle);
+        if (!smsBodies.isEmpty()) {
+            new SmsDispatcher(context).enqueue(smsBodies);
+        }
+    }
+
+    /**
+     * Whether skipped recurring occurrences are summarized in a catch-up notification.
+     */
+    private boolean isCatchUpSummaryEnabled(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("prefs", Context.MODE_PRIVATE);
+        return prefs.getBoolean("catch_up_summary", true);
+    }
+
+    /**
+     * SMS reminders are used when the user enabled them and the permission is granted.
+     */
+    private boolean isSmsEnabled(Context context) {
+        // Load user preference for SMS notifications
+        SharedPreferences prefs = context.getSharedPreferences("prefs", Context.MODE_PRIVATE);
+        return prefs.getBoolean("sms_enabled", false) &&
+                ActivityCompat.checkSelfPermission(context, Manifest.permission.SEND_SMS)
+                        == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /**
+     * ✅ SMS reminder text (queued in the outbox by SmsDispatcher).
+     */
+    private static String smsBody(String eventName, String eventTime) {
+        return "Reminder: " + eventName + " at " + eventTime;
+    }
+
+    /**
+     * Creates the next event row after {@code now} and adds its reminder to the
+     * schedule. The caller re-arms the scheduler afterwards.
+     * The next occurrence is computed from the event's own date and rule in O(1)
+     * (RecurrenceEngine), so a device that was off for weeks resumes on the
+     * right slot instead of "today plus one period". Nothing is created once a
+     * COUNT/UNTIL rule has run out. The new row keeps the series' first date
+     * in its rule, so later rows are computed from the same anchor.
+     *
+     * @return number of occurrences skipped since this event's date (0 if none)
+     */
+    private long generateNextRecurringEvent(Context context,
+                                            String eventName,
+                                            String eventDate,
+                                            String eventTime,
+                                            String recurrenceType,
+                                            long now) {
+        RecurrenceEngine.Occurrence next = RecurrenceEngine.nextAfter(
+                eventDate, eventTime, recurrenceType, now, TimeZone.getDefault());
+        if (next == null) {
+            // If date/time can't be parsed, just stop (no new alarm)
+            return 0;
+        }
+
+        // Insert next event row in SQLite
+        DatabaseHelper helper = new DatabaseHelper(context);
+        long newId = helper.insertEvent(
+                eventName,
+                next.date,
+                next.time,
+                "",
+                // Pins the series' first date, so the row after this one is computed
+                // from it too (Jan 31 -> Feb 28 -> Mar 31, not -> Mar 28)
+                RecurrenceRule.anchored(recurrenceType, DateTimeCodec.parseDate(eventDate))
+        );
+
+        // Schedule the reminder for the next occurrence
+        helper.scheduleReminder(newId, next.fireAt);
+        return next.missed;
+    }
+}
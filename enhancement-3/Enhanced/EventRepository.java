@@ -0,0 +1,349 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * EventRepository is the UI's only way to the database.
+ *
+ * - Every query and write runs on the app's serialized DB executor
+ *   (AppExecutors#db), never on the main thread.
+ * - Reads are exposed as LiveData that re-query automatically when the table
+ *   they read is invalidated (see InvalidationTracker), no matter which
+ *   component wrote: the activity, a sync, or a reminder receiver.
+ * - Writes report back on the main thread through an optional callback.
+ */
+public class EventRepository {
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private interface Query<T> {
+        T run();
+    }
+
+    // Rows fetched first on a fresh list query, so a large table shows its top quickly
+    private static final int FIRST_PAGE_SIZE = 30;
+
+    private static volatile EventRepository instance;
+
+    private final DatabaseHelper db;
+    private final ReminderScheduler reminderScheduler;
+    private final Executor dbExecutor;
+    private final Executor mainThread;
+    private final AgendaSnapshot snapshot;
+
+    // Last complete list, handed to the next list query so a recreated screen
+    // renders it at once instead of waiting for the database
+    private volatile List<EventsGridActivity.EventRow> cachedRows;
+
+    private EventRepository(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.db = new DatabaseHelper(appContext);
+        this.reminderScheduler = new ReminderScheduler(appContext);
+        AppExecutors executors = AppExecutors.from(appContext);
+        this.dbExecutor = executors.db();
+        this.mainThread = executors.mainThread();
+        this.snapshot = AgendaSnapshot.from(appContext);
+    }
+
+    public static EventRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (EventRepository.class) {
+                if (instance == null) {
+                    instance = new EventRepository(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * List rows (id, name, date, time) for all events, re-emitted whenever the
+     * events table changes. See {@link EventRowsLiveData} for the startup stages.
+     */
+    public EventRowsLiveData getEventRows() {
+        return new EventRowsLiveData();
+    }
+
+    /**
+     * Calendar grid data for a movable day window; call
+     * {@link CalendarWindowLiveData#setRange} as the visible weeks change.
+     */
+    public CalendarWindowLiveData observeCalendarWindow() {
+        return new CalendarWindowLiveData();
+    }
+
+    /**
+     * One agenda page strictly after (forward) or before the position
+     * (dayKey, time, id); see DatabaseHelper#getEventRowsPage.
+     */
+    public void loadEventRowsPage(long dayKey, String time, long id, boolean forward, int limit,
+                                  Callback<List<EventsGridActivity.EventRow>> callback) {
+        dbExecutor.execute(() ->
+                deliver(callback, db.getEventRowsPage(dayKey, time, id, forward, limit)));
+    }
+
+    public void loadEventRowsInRange(long fromDay, long toDay,
+                                     Callback<List<EventsGridActivity.EventRow>> callback) {
+        dbExecutor.execute(() -> deliver(callback, db.getEventRowsInRange(fromDay, toDay)));
+    }
+
+    /**
+     * Full details of one event, loaded on demand (null if it was deleted).
+     */
+    public void loadEvent(long id, Callback<EventsGridActivity.Event> callback) {
+        dbExecutor.execute(() -> deliver(callback, db.getEvent(id)));
+    }
+
+    /**
+     * Insert an event and schedule its reminder at {@code fireAt}.
+     */
+    public void addEvent(String name, String date, String time, String description,
+                         String recurrenceType, long fireAt, Callback<Long> callback) {
+        dbExecutor.execute(() -> {
+            long id = db.insertEvent(name, date, time, description, recurrenceType);
+            reminderScheduler.schedule(id, fireAt);
+            deliver(callback, id);
+        });
+    }
+
+    /**
+     * Save a local edit, then move the event's reminder to the new date/time
+     * (or drop it if that is in the past).
+     */
+    public void updateEvent(long id, String name, String date, String time, String description,
+                            String recurrenceType, Callback<Void> callback) {
+        dbExecutor.execute(() -> {
+            db.updateEvent(id, name, date, time, description, recurrenceType);
+            reminderScheduler.reschedule(id, date, time);
+            deliver(callback, null);
+        });
+    }
+
+    /**
+     * Delete an event together with its reminder.
+     */
+    public void deleteEvent(long id) {
+        dbExecutor.execute(() -> reminderScheduler.deleteEvents(Collections.singletonList(id)));
+    }
+
+    public void countEventsForDate(String date, Callback<Integer> callback) {
+        dbExecutor.execute(() -> deliver(callback, db.countEventsForDate(date)));
+    }
+
+    private <T> void deliver(Callback<T> callback, T result) {
+        if (callback != null) {
+            mainThread.execute(() -> callback.onResult(result));
+        }
+    }
+
+    /**
+     * LiveData over one query. While observed it listens for invalidations of
+     * its table and re-runs the query on the DB executor; invalidations that
+     * arrive while a re-query is already queued are folded into it.
+     */
+    private class TableLiveData<T> extends LiveData<T> implements InvalidationTracker.Observer {
+        private final String table;
+        private final Query<T> query;
+        private final AtomicBoolean refreshQueued = new AtomicBoolean(false);
+
+        TableLiveData(String table, Query<T> query) {
+            this.table = table;
+            this.query = query;
+        }
+
+        /** Runs on the DB executor; a null result is not published. */
+        T load() {
+            return query.run();
+        }
+
+        @Override
+        protected void onActive() {
+            InvalidationTracker.getInstance().addObserver(table, this);
+            refresh();
+        }
+
+        @Override
+        protected void onInactive() {
+            InvalidationTracker.getInstance().removeObserver(table, this);
+        }
+
+        @Override
+        public void onInvalidated(String table) {
+            refresh();
+        }
+
+        void refresh() {
+            if (!refreshQueued.compareAndSet(false, true)) return;
+            dbExecutor.execute(() -> {
+                // Cleared before querying, so a write during the query triggers one more pass
+                refreshQueued.set(false);
+                T value = load();
+                if (value != null) postValue(value);
+            });
+        }
+    }
+
+    /**
+     * The event list, delivered in stages on a fresh screen:
+     *
+     * 1. the previous screen's list, if the process already loaded one, or
+     *    else the on-disk AgendaSnapshot (immediately, without touching SQLite)
+     * 2. the first page, if there was neither and the full query is slow
+     *    enough for it to be seen
+     * 3. the complete list, then again after every change
+     *
+     * {@link #isComplete(List)} tells stage 3 apart from the earlier ones.
+     */
+    public class EventRowsLiveData extends TableLiveData<List<EventsGridActivity.EventRow>> {
+        private boolean firstLoadDone;
+        private volatile List<EventsGridActivity.EventRow> partial;
+
+        EventRowsLiveData() {
+            super(DatabaseHelper.TABLE_EVENTS, null);
+            List<EventsGridActivity.EventRow> cached = cachedRows;
+            if (cached == null) {
+                // Cold start: a memory-mapped read of a few KB; null if there is none yet
+                cached = snapshot.read();
+            }
+            if (cached != null) {
+                partial = cached;
+                setValue(cached);
+            }
+        }
+
+        public boolean isComplete(List<EventsGridActivity.EventRow> rows) {
+            return rows != partial;
+        }
+
+        @Override
+        List<EventsGridActivity.EventRow> load() {
+            if (!firstLoadDone && partial == null) {
+                firstLoadDone = true;
+                List<EventsGridActivity.EventRow> page = db.getEventRows(FIRST_PAGE_SIZE);
+                if (page.size() < FIRST_PAGE_SIZE) {
+                    // That was everything
+                    cachedRows = page;
+                    if (!snapshot.exists()) snapshot.write(page);
+                    return page;
+                }
+                // postValue() keeps only the latest value, so when the full query is
+                // quick the page is simply superseded and never rendered
+                partial = page;
+                postValue(page);
+            }
+            firstLoadDone = true;
+            List<EventsGridActivity.EventRow> rows = db.getEventRows();
+            cachedRows = rows;
+            // First run with this feature: nothing has changed yet to write one
+            if (!snapshot.exists()) snapshot.write(rows);
+            return rows;
+        }
+    }
+
+    /**
+     * Per-day counts (and, for the week view, event rows) for the days
+     * [fromDay, toDay). Moving the range or any write to the events table
+     * re-runs one aggregate query rather than one query per visible day.
+     * Recurring events also count on the days they will recur: the latest row
+     * of each series is expanded over the window (RecurrenceEngine), which adds
+     * to the counts without allocating per occurrence.
+     */
+    public class CalendarWindowLiveData extends TableLiveData<CalendarGridAdapter.Window> {
+        private long fromDay;
+        private long toDay;
+        private boolean withRows;
+
+        CalendarWindowLiveData() {
+            super(DatabaseHelper.TABLE_EVENTS, null);
+        }
+
+        public synchronized void setRange(long fromDay, long toDay, boolean withRows) {
+            if (this.fromDay == fromDay && this.toDay == toDay && this.withRows == withRows) return;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.withRows = withRows;
+            if (hasActiveObservers()) refresh();
+        }
+
+        @Override
+        CalendarGridAdapter.Window load() {
+            long from;
+            long to;
+            boolean rows;
+            synchronized (this) {
+                from = fromDay;
+                to = toDay;
+                rows = withRows;
+            }
+            if (to <= from) return null;
+
+            int[] counts = db.getDayCounts(from, to);
+            List<EventsGridActivity.EventRow> dayRows = rows ? db.getEventRowsInRange(from, to) : null;
+
+            List<EventsGridActivity.Event> heads = new ArrayList<>();
+            List<RecurrenceEngine.Series> series = new ArrayList<>();
+            latestRowPerSeries(db.getRecurringEventsBefore(to), heads, series);
+            if (series.isEmpty()) {
+                return new CalendarGridAdapter.Window(from, to, counts, dayRows);
+            }
+
+            List<EventsGridActivity.EventRow> projected = rows ? new ArrayList<>() : null;
+            RecurrenceEngine.expand(series, from, to, (position, day, index) -> {
+                counts[(int) (day - from)]++;
+                if (projected != null) {
+                    EventsGridActivity.Event head = heads.get(position);
+                    projected.add(new EventsGridActivity.EventRow(head.id, head.name,
+                            DateTimeCodec.formatDate(day), head.time, head.syncStatus, day));
+                }
+            });
+
+            if (projected != null && !projected.isEmpty()) {
+                dayRows = new ArrayList<>(dayRows);
+                dayRows.addAll(projected);
+                Collections.sort(dayRows, (a, b) -> a.dayKey != b.dayKey
+                        ? Long.compare(a.dayKey, b.dayKey) : a.time.compareTo(b.time));
+            }
+            return new CalendarGridAdapter.Window(from, to, counts, dayRows);
+        }
+    }
+
+    // Every occurrence is its own row, so only the latest row of a series (same name,
+    // time, rule and anchor) projects further occurrences; rows come oldest first
+    private static void latestRowPerSeries(List<EventsGridActivity.Event> events,
+                                           List<EventsGridActivity.Event> heads,
+                                           List<RecurrenceEngine.Series> series) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (EventsGridActivity.Event event : events) {
+            RecurrenceEngine.Series compiled =
+                    RecurrenceEngine.Series.compile(event.date, event.time, event.recurrenceType);
+            if (compiled == null) continue;
+
+            // Compare rules by value: the first row may hold "WEEKLY", later ones "DTSTART=...;FREQ=WEEKLY"
+            RecurrenceRule rule = RecurrenceRule.parse(event.recurrenceType);
+            String key = event.name + '\n' + event.time + '\n' + compiled.anchorDay() + '\n'
+                    + rule.freq + ',' + rule.interval + ',' + rule.byDayMask + ','
+                    + rule.count + ',' + rule.untilDay;
+            Integer position = positions.get(key);
+            if (position == null) {
+                positions.put(key, heads.size());
+                heads.add(event);
+                series.add(compiled);
+            } else {
+                heads.set(position, event);
+                series.set(position, compiled);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.projectthree_sunnynguyen;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EventWireCodec is the compact binary alternative to JSON for sync payloads.
+ *
+ * Layout (all integers are unsigned LEB128 varints):
+ *   header:  'E' 'V' formatVersion kind
+ *   body:    count, then count records
+ *   string:  (byteLength + 1) followed by UTF-8 bytes; 0 means null
+ *
+ * Records per kind:
+ *   EVENTS   remoteId, name, date, time, description, recurrenceType, version
+ *   MANIFEST remoteId, version
+ *   UPLOAD   localId, remoteId, name, date, time, description, recurrenceType
+ *
+ * The server answers an UPLOAD with a MANIFEST: one entry per uploaded event,
+ * in order, carrying the version it assigned (remoteId null when that upload
+ * failed).
+ *
+ * ApiService advertises this format in the Accept header and falls back to
+ * JSON whenever the server answers with another content type. A payload that
+ * does not match this layout fails with {@link FormatException}.
+ */
+public final class EventWireCodec {
+
+    public static final String CONTENT_TYPE = "application/x-event-batch";
+
+    public static final int KIND_EVENTS = 1;
+    public static final int KIND_MANIFEST = 2;
+    public static final int KIND_UPLOAD = 3;
+
+    private static final int FORMAT_VERSION = 1;
+
+    // Smallest encoded record of each kind (every string and varint takes at least a byte)
+    private static final int MIN_EVENT_BYTES = 7;
+    private static final int MIN_MANIFEST_BYTES = 2;
+    // Upper bound for pre-sizing result lists when the payload length is unknown
+    private static final int MAX_PRESIZE = 1024;
+
+    private EventWireCodec() {
+    }
+
+    public static boolean isBinary(String contentType) {
+        return contentType != null && contentType.startsWith(CONTENT_TYPE);
+    }
+
+    // ===== Decoding =====
+
+    /**
+     * @param length payload size in bytes (e.g. Content-Length), or -1 if unknown
+     */
+    public static List<ApiService.RemoteEvent> decodeEvents(InputStream in, long length)
+            throws IOException {
+        Input input = new Input(in, length);
+        input.readHeader(KIND_EVENTS);
+        int count = input.readCount(MIN_EVENT_BYTES);
+
+        List<ApiService.RemoteEvent> events = new ArrayList<>(Math.min(count, MAX_PRESIZE));
+        for (int i = 0; i < count; i++) {
+            events.add(new ApiService.RemoteEvent(
+                    input.readString(),
+                    input.readString(),
+                    input.readString(),
+                    input.readString(),
+                    input.readString(),
+                    input.readString(),
+                    input.readVarLong()));
+        }
+        return events;
+    }
+
+    public static List<ApiService.ManifestEntry> decodeManifest(InputStream in, long length)
+            throws IOException {
+        Input input = new Input(in, length);
+        input.readHeader(KIND_MANIFEST);
+        int count = input.readCount(MIN_MANIFEST_BYTES);
+
+        List<ApiService.ManifestEntry> manifest = new ArrayList<>(Math.min(count, MAX_PRESIZE));
+        for (int i = 0; i < count; i++) {
+            manifest.add(new ApiService.ManifestEntry(input.readString(), input.readVarLong()));
+        }
+        return manifest;
+    }
+
+    // ===== Encoding =====
+
+    public static void encodeUpload(List<EventsGridActivity.Event> events, OutputStream out)
+            throws IOException {
+        Output output = new Output(out);
+        output.writeHeader(KIND_UPLOAD);
+        output.writeVarLong(events.size());
+
+        for (EventsGridActivity.Event event : events) {
+            output.writeVarLong(event.id);
+            output.writeString(event.remoteId);
+            output.writeString(event.name);
+            output.writeString(event.date);
+            output.writeString(event.time);
+            output.writeString(event.desc);
+            output.writeString(event.recurrenceType);
+        }
+        out.flush();
+    }
+
+    /**
+     * The payload is not a well-formed event batch.
+     */
+    public static final class FormatException extends IOException {
+        FormatException(String message) {
+            super(message);
+        }
+    }
+
+    // ===== Primitives =====
+
+    private static final class Input {
+        private final InputStream in;
+        private final long length;
+        private long consumed;
+        // Reused for every string so decoding allocates only the String itself
+        private byte[] buffer = new byte[128];
+
+        Input(InputStream in, long length) {
+            this.in = in;
+            this.length = length;
+        }
+
+        void readHeader(int expectedKind) throws IOException {
+            if (readByte() != 'E' || readByte() != 'V') {
+                throw new FormatException("Not an event batch payload");
+            }
+            int version = readByte();
+            if (version != FORMAT_VERSION) {
+                throw new FormatException("Unsupported wire format version: " + version);
+            }
+            int kind = readByte();
+            if (kind != expectedKind) {
+                throw new FormatException("Unexpected payload kind " + kind + ", wanted " + expectedKind);
+            }
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new FormatException("Malformed varint");
+        }
+
+        // A record count that the rest of the payload can actually hold
+        int readCount(int minRecordBytes) throws IOException {
+            long count = readVarLong();
+            if (count < 0 || count > Integer.MAX_VALUE
+                    || (length >= 0 && count * minRecordBytes > length - consumed)) {
+                throw new FormatException("Invalid record count: " + count);
+            }
+            return (int) count;
+        }
+
+        String readString() throws IOException {
+            long encoded = readVarLong();
+            if (encoded == 0) {
+                return null;
+            }
+            if (encoded < 0 || encoded - 1 > Integer.MAX_VALUE
+                    || (this.length >= 0 && encoded - 1 > this.length - consumed)) {
+                throw new FormatException("Invalid string length: " + (encoded - 1));
+            }
+            int length = (int) (encoded - 1);
+            if (length > buffer.length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            int read = 0;
+            while (read < length) {
+                int n = in.read(buffer, read, length - read);
+                if (n < 0) throw new EOFException();
+                read += n;
+            }
+            consumed += length;
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            consumed++;
+            return b;
+        }
+    }
+
+    private static final class Output {
+        private final OutputStream out;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeHeader(int kind) throws IOException {
+            out.write('E');
+            out.write('V');
+            out.write(FORMAT_VERSION);
+            out.write(kind);
+        }
+
+        void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7fL) != 0) {
+                out.write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+}
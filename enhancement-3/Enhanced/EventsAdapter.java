@@ -1,66 +1,155 @@
-package com.example.projectthree_sunnynguyen;
-
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.Button;
-import android.widget.TextView;
-
-import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.RecyclerView;
-
-import java.util.List;
-
-/** Adapter for displaying events in a RecyclerView (uses row_event.xml). */
-public class EventsAdapter extends RecyclerView.Adapter<EventsAdapter.ViewHolder> {
-
-    public interface OnRowActionListener {
-        void onDeleteClicked(EventsGridActivity.Event event);
-    }
-
-    private final List<EventsGridActivity.Event> events;
-    private final OnRowActionListener listener;
-
-    public EventsAdapter(List<EventsGridActivity.Event> events, OnRowActionListener listener) {
-        this.events = events;
-        this.listener = listener;
-    }
-
-    @NonNull
-    @Override
-    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.row_event, parent, false);
-        return new ViewHolder(view);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        EventsGridActivity.Event event = events.get(position);
-        holder.tvName.setText(event.name);
-        holder.tvDate.setText(event.date);
-        holder.tvTime.setText(event.time);
-
-        holder.btnDelete.setOnClickListener(v -> {
-            if (listener != null) listener.onDeleteClicked(event);
-        });
-    }
-
-    @Override
-    public int getItemCount() {
-        return events.size();
-    }
-
-    public static class ViewHolder extends RecyclerView.ViewHolder {
-        TextView tvName, tvDate, tvTime;
-        Button btnDelete;
-
-        public ViewHolder(@NonNull View itemView) {
-            super(itemView);
-            tvName    = itemView.findViewById(R.id.tvName);
-            tvDate    = itemView.findViewById(R.id.tvDate);
-            tvTime    = itemView.findViewById(R.id.tvTime);
-            btnDelete = itemView.findViewById(R.id.btnDelete); // <- matches XML
-        }
-    }
-}
+package com.example.projectthree_sunnynguyen;
+
+import android.graphics.drawable.Drawable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapter for displaying events in a RecyclerView (uses row_event.xml).
+ *
+ * NEW: Backed by ListAdapter. Each submitList() is diffed against the current
+ * list on a background thread (keyed by event id), and only inserted, moved,
+ * removed or changed rows are notified, so a sync no longer rebinds every row.
+ * A row whose only change is its sync status gets a payload rebind that just
+ * swaps the badge. Binding allocates nothing: each holder owns one click
+ * listener that looks up its current position, and resolves the badge
+ * drawable once. Diffs run on the executor
+ * passed in (the app's CPU pool) rather than a private diff thread.
+ */
+public class EventsAdapter extends ListAdapter<EventsGridActivity.EventRow, EventsAdapter.ViewHolder> {
+
+    public interface OnRowActionListener {
+        void onDeleteClicked(EventsGridActivity.EventRow event);
+
+        // NEW: Tapping a row opens it for editing
+        void onRowClicked(EventsGridActivity.EventRow event);
+    }
+
+    // Partial rebind: only the sync-status badge changed
+    static final Object PAYLOAD_SYNC_STATUS = new Object();
+
+    private static final DiffUtil.ItemCallback<EventsGridActivity.EventRow> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<EventsGridActivity.EventRow>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull EventsGridActivity.EventRow a,
+                                               @NonNull EventsGridActivity.EventRow b) {
+                    return a.id == b.id;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull EventsGridActivity.EventRow a,
+                                                  @NonNull EventsGridActivity.EventRow b) {
+                    return Objects.equals(a.name, b.name)
+                            && Objects.equals(a.date, b.date)
+                            && Objects.equals(a.time, b.time)
+                            && Objects.equals(a.syncStatus, b.syncStatus);
+                }
+
+                @Override
+                public Object getChangePayload(@NonNull EventsGridActivity.EventRow a,
+                                               @NonNull EventsGridActivity.EventRow b) {
+                    boolean textSame = Objects.equals(a.name, b.name)
+                            && Objects.equals(a.date, b.date)
+                            && Objects.equals(a.time, b.time);
+                    return textSame ? PAYLOAD_SYNC_STATUS : null;
+                }
+            };
+
+    private final OnRowActionListener listener;
+
+    public EventsAdapter(OnRowActionListener listener, Executor diffExecutor) {
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                .setBackgroundThreadExecutor(diffExecutor)
+                .build());
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.row_event, parent, false);
+        ViewHolder holder = new ViewHolder(view);
+
+        // One listener per holder, created once; it resolves the row at click time
+        holder.btnDelete.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (listener != null && position != RecyclerView.NO_POSITION) {
+                listener.onDeleteClicked(getItem(position));
+            }
+        });
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (listener != null && position != RecyclerView.NO_POSITION) {
+                listener.onRowClicked(getItem(position));
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        EventsGridActivity.EventRow event = getItem(position);
+        holder.tvName.setText(event.name);
+        holder.tvDate.setText(event.date);
+        holder.tvTime.setText(event.time);
+        bindSyncBadge(holder, event);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        // Every payload we emit is PAYLOAD_SYNC_STATUS: leave the text alone
+        bindSyncBadge(holder, getItem(position));
+    }
+
+    // Rows not yet on the server show a sync icon after the name
+    static void bindSyncBadge(ViewHolder holder, EventsGridActivity.EventRow event) {
+        boolean show = !DatabaseHelper.SYNC_STATUS_SYNCED.equals(event.syncStatus);
+        if (show == holder.badgeShown) return;
+        holder.badgeShown = show;
+        holder.tvName.setCompoundDrawablesWithIntrinsicBounds(
+                null, null, show ? holder.syncBadge : null, null);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView tvName, tvDate, tvTime;
+        Button btnDelete;
+        // Resolved once per holder; bindSyncBadge only attaches or detaches it
+        final Drawable syncBadge;
+        boolean badgeShown;
+
+        public ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvName    = itemView.findViewById(R.id.tvName);
+            tvDate    = itemView.findViewById(R.id.tvDate);
+            tvTime    = itemView.findViewById(R.id.tvTime);
+            btnDelete = itemView.findViewById(R.id.btnDelete); // <- matches XML
+            syncBadge = ContextCompat.getDrawable(itemView.getContext(), android.R.drawable.ic_popup_sync);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.app.Application;
+import android.os.SystemClock;
+
+/**
+ * Process-wide state that must outlive any one activity or receiver:
+ * currently the shared {@link AppExecutors}.
+ */
+public class EventsApplication extends Application {
+
+    private AppExecutors executors;
+    private AgendaSnapshot agendaSnapshot;
+    private long createdAt;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        createdAt = SystemClock.uptimeMillis();
+        executors = new AppExecutors();
+        // NEW: keep the cold-start snapshot in step with every write, whoever makes it
+        agendaSnapshot = new AgendaSnapshot(this, executors.db());
+        agendaSnapshot.startUpdating();
+        // NEW: A force-stop clears the reminder alarm without a boot or time change
+        // broadcast; the next launch is the first chance to put it back
+        executors.db().execute(() -> new ReminderScheduler(this).rearm());
+    }
+
+    public AppExecutors getExecutors() {
+        return executors;
+    }
+
+    AgendaSnapshot getAgendaSnapshot() {
+        return agendaSnapshot;
+    }
+
+    /**
+     * NEW: Uptime at which this process's Application.onCreate ran.
+     */
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Backgrounded: a convenient point to record how the pools behaved
+        executors.logMetrics("onTrimMemory(" + level + ")");
+    }
+}
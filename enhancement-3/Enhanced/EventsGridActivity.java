@@ -1,12 +1,12 @@
 package com.example.projectthree_sunnynguyen;
 
 import android.Manifest;
-import android.app.AlarmManager;
-import android.app.PendingIntent;
+import android.app.DatePickerDialog;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Trace;
 import android.text.TextUtils;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -24,13 +24,7 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.List;
-import java.util.Locale;
+import java.util.TimeZone;
 
 public class EventsGridActivity extends AppCompatActivity {
 
@@ -39,19 +33,52 @@ public class EventsGridActivity extends AppCompatActivity {
     private Spinner spRecurrence;
     private Button btnAdd;
 
-    private DatabaseHelper db;
+    // NEW: All database access goes through the repository (off the main thread)
+    private EventRepository repository;
     private EventsAdapter adapter;
-    private final List<Event> events = new ArrayList<>();
 
-    // NEW: Sync manager for cloud synchronization
+    // NEW: Month/week calendar grid, shown in the same RecyclerView as the list
+    private static final int VIEW_LIST = 0;
+    private static final int VIEW_MONTH = 1;
+    private static final int VIEW_WEEK = 2;
+    private static final int VIEW_AGENDA = 3;
+    // Weeks loaded beyond the visible ones in each direction, so short scrolls don't re-query
+    private static final int WINDOW_MARGIN_WEEKS = 8;
+
+    private int viewMode = VIEW_LIST;
+    private LinearLayoutManager listLayout;
+    private LinearLayoutManager calendarLayout;
+    private CalendarGridAdapter calendarAdapter;
+    private EventRepository.CalendarWindowLiveData calendarWindow;
+    private long windowFrom, windowTo;
+    private long today;
+
+    // NEW: Day-grouped agenda, paged around a date
+    private LinearLayoutManager agendaLayout;
+    private AgendaAdapter agendaAdapter;
+    private AgendaPager agendaPager;
+
+    // NEW: Sync manager for cloud synchronization (created on first use, after startup)
     private SyncManager syncManager;
 
-    private final SimpleDateFormat DF = new SimpleDateFormat("MM/dd/yyyy", Locale.US);
-    private final SimpleDateFormat TF = new SimpleDateFormat("HH:mm", Locale.US);
+    // NEW: Startup timing for this launch
+    private StartupTracer startupTracer;
+    private AppExecutors executors;
+    private EventsAdapter.OnRowActionListener rowActions;
+
+    // NEW: Event being edited in the form (null while adding)
+    private Event editing;
+    private CharSequence addLabel;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // NEW: Staged startup. Only what the first frame needs happens here: the
+        // list renders from the repository's cached rows (if any) while the database
+        // loads on the DB thread; sync waits until after the first frame, and the
+        // calendar/agenda views are built when first opened.
+        startupTracer = new StartupTracer(this);
+        Trace.beginSection("EventsGridActivity.onCreate");
         setContentView(R.layout.activity_events_grid);
 
         // Toolbar (enables 3-dot overflow menu)
@@ -61,10 +88,9 @@ public class EventsGridActivity extends AppCompatActivity {
         // Ask for notification permission on Android 13+
         requestPostNotificationsIfNeeded();
 
-        db = new DatabaseHelper(this);
-        
-        // NEW: Initialize sync manager
-        syncManager = new SyncManager(this);
+        // NEW: App-wide threads (see AppExecutors); nothing here creates its own
+        executors = AppExecutors.from(this);
+        repository = EventRepository.getInstance(this);
 
         recyclerView = findViewById(R.id.recyclerViewEvents);
         etName = findViewById(R.id.editTextEventName);
@@ -88,22 +114,82 @@ public class EventsGridActivity extends AppCompatActivity {
         recurrenceAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spRecurrence.setAdapter(recurrenceAdapter);
 
-        adapter = new EventsAdapter(events, e -> {
-            db.deleteEvent(e.id);
-            events.remove(e);
-            adapter.notifyDataSetChanged();
-            Toast.makeText(this, "Event deleted", Toast.LENGTH_SHORT).show();
-        });
+        rowActions = new EventsAdapter.OnRowActionListener() {
+            @Override
+            public void onDeleteClicked(EventRow e) {
+                // NEW: Also drops the event's reminder; the views update through live queries
+                repository.deleteEvent(e.id);
+                if (editing != null && editing.id == e.id) clearForm();
+                Toast.makeText(EventsGridActivity.this, "Event deleted", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onRowClicked(EventRow e) {
+                repository.loadEvent(e.id, event -> {
+                    if (event != null) startEditing(event);
+                });
+            }
+        };
+        adapter = new EventsAdapter(rowActions, executors.cpu());
 
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        listLayout = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(listLayout);
         recyclerView.setAdapter(adapter);
 
+        today = DateTimeCodec.epochDayOf(System.currentTimeMillis(), TimeZone.getDefault());
+
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView rv, int dx, int dy) {
+                if (viewMode == VIEW_AGENDA) {
+                    agendaPager.onScrolled(agendaLayout.findFirstVisibleItemPosition(),
+                            agendaLayout.findLastVisibleItemPosition());
+                } else if (viewMode != VIEW_LIST) {
+                    updateCalendarWindow();
+                }
+            }
+        });
+
+        addLabel = btnAdd.getText();
         btnAdd.setOnClickListener(v -> addEvent());
 
-        loadAll();
-        
-        // NEW: Perform sync on launch
-        performSyncOnLaunch();
+        // NEW: Re-emits whenever the events table changes (local edits, sync, receivers)
+        EventRepository.EventRowsLiveData rows = repository.getEventRows();
+        rows.observe(this, list -> adapter.submitList(list, () -> {
+            if (!list.isEmpty()) startupTracer.markContent();
+            if (rows.isComplete(list)) startupTracer.markFullData();
+        }));
+
+        // NEW: Sync on a fresh launch (not on recreation), once the first frame is up
+        if (savedInstanceState == null) {
+            startupTracer.onFirstFrame(recyclerView, this::performSyncOnLaunch);
+        }
+        Trace.endSection();
+    }
+
+    // NEW: Built on first use, so startup doesn't pay for views it may never show
+    private void ensureCalendar() {
+        if (calendarAdapter != null) return;
+        calendarLayout = new LinearLayoutManager(this);
+        calendarAdapter = new CalendarGridAdapter(today);
+        calendarWindow = repository.observeCalendarWindow();
+        calendarWindow.observe(this, calendarAdapter::setWindow);
+    }
+
+    private void ensureAgenda() {
+        if (agendaAdapter != null) return;
+        agendaLayout = new LinearLayoutManager(this);
+        agendaAdapter = new AgendaAdapter(rowActions);
+        agendaPager = new AgendaPager(repository, agendaAdapter, agendaLayout,
+                executors.mainThread());
+        recyclerView.addItemDecoration(new AgendaAdapter.StickyHeaderDecoration(agendaAdapter));
+    }
+
+    private SyncManager syncManager() {
+        if (syncManager == null) {
+            syncManager = new SyncManager(this);
+        }
+        return syncManager;
     }
 
     private void requestPostNotificationsIfNeeded() {
@@ -119,15 +205,11 @@ public class EventsGridActivity extends AppCompatActivity {
         }
     }
 
-    // NEW: Perform sync on app launch
+    // NEW: Perform sync on app launch (after the first frame, on the background I/O pool;
+    // no "Syncing..." toast competing with the first frame)
     private void performSyncOnLaunch() {
-        Toast.makeText(this, "Syncing with cloud...", Toast.LENGTH_SHORT).show();
-        
-        syncManager.performSync((success, message) -> {
+        syncManager().performSync((success, message) -> {
             Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
-            
-            // Reload events after sync
-            loadAll();
         });
     }
 
@@ -135,14 +217,79 @@ public class EventsGridActivity extends AppCompatActivity {
     private void performManualSync() {
         Toast.makeText(this, "Starting sync...", Toast.LENGTH_SHORT).show();
         
-        syncManager.performSync((success, message) -> {
+        syncManager().performSync((success, message) -> {
             Toast.makeText(this, message, Toast.LENGTH_LONG).show();
-            
-            // Reload events after sync
-            loadAll();
         });
     }
 
+    // NEW: Switch between the event list, the month/week grid and the agenda
+    private void setViewMode(int mode) {
+        if (viewMode == mode) return;
+        boolean wasCalendar = viewMode == VIEW_MONTH || viewMode == VIEW_WEEK;
+        viewMode = mode;
+        if (agendaPager != null) agendaPager.setActive(mode == VIEW_AGENDA);
+
+        if (mode == VIEW_LIST) {
+            recyclerView.setLayoutManager(listLayout);
+            recyclerView.setAdapter(adapter);
+            return;
+        }
+        if (mode == VIEW_AGENDA) {
+            ensureAgenda();
+            agendaPager.setActive(true);
+            recyclerView.setLayoutManager(agendaLayout);
+            recyclerView.setAdapter(agendaAdapter);
+            return;
+        }
+
+        ensureCalendar();
+        calendarAdapter.setMode(mode == VIEW_WEEK
+                ? CalendarGridAdapter.MODE_WEEK : CalendarGridAdapter.MODE_MONTH);
+        if (!wasCalendar) {
+            recyclerView.setLayoutManager(calendarLayout);
+            recyclerView.setAdapter(calendarAdapter);
+            calendarLayout.scrollToPositionWithOffset(calendarAdapter.positionOfDay(today), 0);
+        }
+        // Visible positions are known after the next layout pass
+        windowFrom = windowTo = 0;
+        recyclerView.post(this::updateCalendarWindow);
+    }
+
+    // NEW: Re-query only once the visible weeks leave the loaded window
+    private void updateCalendarWindow() {
+        int first = calendarLayout.findFirstVisibleItemPosition();
+        int last = calendarLayout.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) return;
+
+        long visibleFrom = calendarAdapter.firstDayOfPosition(first);
+        long visibleTo = calendarAdapter.firstDayOfPosition(last + 1);
+        if (visibleFrom >= windowFrom && visibleTo <= windowTo) return;
+
+        windowFrom = calendarAdapter.firstDayOfPosition(Math.max(0, first - WINDOW_MARGIN_WEEKS));
+        windowTo = calendarAdapter.firstDayOfPosition(
+                Math.min(calendarAdapter.getItemCount(), last + 1 + WINDOW_MARGIN_WEEKS));
+        calendarWindow.setRange(windowFrom, windowTo, viewMode == VIEW_WEEK);
+    }
+
+    // NEW: Jump to a date: a scroll in the calendar grid, an indexed seek in the agenda
+    private void showGoToDate() {
+        int[] ymd = DateTimeCodec.civilFromDays(today);
+        new DatePickerDialog(this,
+                (picker, year, month, day) ->
+                        goToDate(DateTimeCodec.daysFromCivil(year, month + 1, day)),
+                ymd[0], ymd[1] - 1, ymd[2]
+        ).show();
+    }
+
+    private void goToDate(long epochDay) {
+        if (viewMode == VIEW_MONTH || viewMode == VIEW_WEEK) {
+            calendarLayout.scrollToPositionWithOffset(calendarAdapter.positionOfDay(epochDay), 0);
+            return;
+        }
+        setViewMode(VIEW_AGENDA);
+        agendaPager.seek(epochDay);
+    }
+
     private void addEvent() {
         String name = etName.getText().toString().trim();
         String date = etDate.getText().toString().trim(); // MM/DD/YYYY
@@ -171,82 +318,78 @@ public class EventsGridActivity extends AppCompatActivity {
                 break;
         }
 
-        Date d, t;
-        try {
-            d = DF.parse(date);
-            t = TF.parse(time);
-        } catch (ParseException e) {
+        // NEW: Parsed straight to epoch day / minute of day (no Date or Calendar)
+        long day = DateTimeCodec.parseDate(date);
+        int minute = DateTimeCodec.parseTime(time);
+        if (day == DateTimeCodec.NO_DAY || minute == DateTimeCodec.NO_TIME) {
             Toast.makeText(this, "Use MM/DD/YYYY and HH:MM (24-hour)", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        long id = db.insertEvent(name, date, time, "", recurrenceType);
-        // NEW: Event now includes sync fields (null for remoteId, PENDING for syncStatus)
-        Event ev = new Event((int) id, name, date, time, "", recurrenceType, 
-                null, DatabaseHelper.SYNC_STATUS_PENDING);
-        events.add(ev);
-        adapter.notifyItemInserted(events.size() - 1);
+        // The stored rule is kept while the spinner still shows it: it may hold more
+        // than the spinner can (INTERVAL, COUNT, the series anchor)
+        if (editing != null && pos == Math.max(0, recurrenceSpinnerPosition(editing.recurrenceType))) {
+            recurrenceType = editing.recurrenceType;
+            // A row moved to another date starts its own series
+            if (DateTimeCodec.parseDate(editing.date) != day) {
+                recurrenceType = RecurrenceRule.withoutAnchor(recurrenceType);
+            }
+        }
 
-        Calendar when = merge(d, t);
-        scheduleAlarm(id, name, when, recurrenceType);
+        if (editing != null) {
+            // NEW: Saved on the DB executor; the event's reminder moves with it
+            repository.updateEvent(editing.id, name, DateTimeCodec.formatDate(day),
+                    DateTimeCodec.formatTime(minute), editing.desc, recurrenceType, null);
+            clearForm();
+            Toast.makeText(this, "Event updated", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-        etName.setText("");
-        etDate.setText("");
-        etTime.setText("");
-        spRecurrence.setSelection(0);
+        // NEW: Inserted and scheduled on the DB executor; the live query shows the new row.
+        // Reminders are queued in the scheduled_reminders table; ReminderScheduler
+        // keeps a single OS alarm armed for whichever reminder is due first.
+        // Stored in canonical form ("1/5/2026" -> "01/05/2026") so date lookups match.
+        long fireAt = DateTimeCodec.toEpochMillis(day, minute, TimeZone.getDefault());
+        repository.addEvent(name, DateTimeCodec.formatDate(day), DateTimeCodec.formatTime(minute),
+                "", recurrenceType, fireAt, null);
+
+        clearForm();
         Toast.makeText(this, "Event added", Toast.LENGTH_SHORT).show();
     }
 
-    private Calendar merge(Date d, Date t) {
-        Calendar cd = Calendar.getInstance();
-        cd.setTime(d);
-        Calendar ct = Calendar.getInstance();
-        ct.setTime(t);
-        Calendar out = Calendar.getInstance();
-        out.set(cd.get(Calendar.YEAR), cd.get(Calendar.MONTH),
-                cd.get(Calendar.DAY_OF_MONTH),
-                ct.get(Calendar.HOUR_OF_DAY), ct.get(Calendar.MINUTE), 0);
-        return out;
+    // NEW: Fill the form with an existing event; the add button saves it instead
+    private void startEditing(Event event) {
+        editing = event;
+        etName.setText(event.name);
+        etDate.setText(event.date);
+        etTime.setText(event.time);
+        spRecurrence.setSelection(Math.max(0, recurrenceSpinnerPosition(event.recurrenceType)));
+        btnAdd.setText("Save");
     }
 
-    /**
-     * Schedules a reminder for the event.
-     * - API 31+ (Android 12+): use INEXACT alarm to avoid SCHEDULE_EXACT_ALARM requirement.
-     * - API 23–30: use setExactAndAllowWhileIdle.
-     * - API <23: use setExact.
-     */
-    private void scheduleAlarm(long id, String name, Calendar when, String recurrenceType) {
-        Intent i = new Intent(this, EventReminderReceiver.class);
-        i.putExtra("name", name);
-        i.putExtra("time", TF.format(when.getTime()));
-        i.putExtra("recurrence_type", recurrenceType);
-
-        PendingIntent pi = PendingIntent.getBroadcast(
-                this, (int) id, i,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        AlarmManager am = (AlarmManager) getSystemService(ALARM_SERVICE);
-        if (am == null) return;
-
-        long triggerAt = when.getTimeInMillis();
-
-        if (Build.VERSION.SDK_INT >= 31) {
-            // No special permission needed; slightly inexact but perfect for the course demo
-            am.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pi);
-            // Optionally, tighten the window:
-            // am.setWindow(AlarmManager.RTC_WAKEUP, triggerAt, 60_000L, pi);
-        } else if (Build.VERSION.SDK_INT >= 23) {
-            am.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pi);
-        } else {
-            am.setExact(AlarmManager.RTC_WAKEUP, triggerAt, pi);
-        }
+    private void clearForm() {
+        editing = null;
+        etName.setText("");
+        etDate.setText("");
+        etTime.setText("");
+        spRecurrence.setSelection(0);
+        btnAdd.setText(addLabel);
     }
 
-    private void loadAll() {
-        events.clear();
-        events.addAll(db.getAllEvents());
-        adapter.notifyDataSetChanged();
+    // Spinner position for a recurrence value, or -1 for a rule it has no option for
+    private static int recurrenceSpinnerPosition(String recurrenceType) {
+        RecurrenceRule rule = RecurrenceRule.parse(recurrenceType);
+        if (rule == null) return 0;
+        if (rule.interval != 1 || rule.byDayMask != 0 || rule.count != 0
+                || rule.untilDay != Long.MAX_VALUE) {
+            return -1;
+        }
+        switch (rule.freq) {
+            case RecurrenceRule.FREQ_DAILY: return 1;
+            case RecurrenceRule.FREQ_WEEKLY: return 2;
+            case RecurrenceRule.FREQ_MONTHLY: return 3;
+            default: return -1;
+        }
     }
 
     // ===== Menu (overflow / 3-dot) =====
@@ -268,46 +411,80 @@ public class EventsGridActivity extends AppCompatActivity {
             // NEW: Manual sync option
             performManualSync();
             return true;
+        } else if (item.getItemId() == R.id.action_view_list) {
+            setViewMode(VIEW_LIST);
+            return true;
+        } else if (item.getItemId() == R.id.action_view_month) {
+            setViewMode(VIEW_MONTH);
+            return true;
+        } else if (item.getItemId() == R.id.action_view_week) {
+            setViewMode(VIEW_WEEK);
+            return true;
+        } else if (item.getItemId() == R.id.action_view_agenda) {
+            goToDate(today);
+            return true;
+        } else if (item.getItemId() == R.id.action_go_to_date) {
+            showGoToDate();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
     private void sendTodaysAlerts() {
-        String today = DF.format(new Date());
-        List<Event> list = db.getEventsForDate(today);
-        if (list.isEmpty()) {
-            Toast.makeText(this, "No events for today", Toast.LENGTH_SHORT).show();
-            return;
-        }
-        for (Event e : list) {
+        String today = DateTimeCodec.formatDate(
+                DateTimeCodec.epochDayOf(System.currentTimeMillis(), TimeZone.getDefault()));
+        repository.countEventsForDate(today, count -> {
+            if (count == 0) {
+                Toast.makeText(this, "No events for today", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            // NEW: One broadcast for the whole day; the receiver batches the alerts
             Intent i = new Intent(this, EventReminderReceiver.class);
-            i.putExtra("name", e.name);
-            i.putExtra("time", e.time);
-            i.putExtra("recurrence_type", e.recurrenceType);
+            i.setAction(EventReminderReceiver.ACTION_SEND_TODAYS_ALERTS);
+            i.putExtra(EventReminderReceiver.EXTRA_DATE, today);
             sendBroadcast(i);
-        }
-        Toast.makeText(this, "Today's alerts sent", Toast.LENGTH_SHORT).show();
+            Toast.makeText(this, "Today's alerts sent", Toast.LENGTH_SHORT).show();
+        });
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // NEW: Clean up sync manager resources
-        if (syncManager != null) {
-            syncManager.shutdown();
+        // NEW: Stop following table changes for the agenda
+        if (agendaPager != null) {
+            agendaPager.setActive(false);
+        }
+    }
+
+    // ===== NEW: Slim list row (only what a row displays; details via EventRepository.loadEvent) =====
+    public static class EventRow {
+        public final long id;
+        public final String name, date, time;
+        public final String syncStatus;
+        // NEW: Epoch day of date (DateTimeCodec.NO_DAY if unparseable)
+        public final long dayKey;
+
+        public EventRow(long id, String name, String date, String time, String syncStatus,
+                        long dayKey) {
+            this.id = id;
+            this.name = name;
+            this.date = date;
+            this.time = time;
+            this.syncStatus = syncStatus;
+            this.dayKey = dayKey;
         }
     }
 
     // ===== Event model with sync support =====
     public static class Event {
-        public int id;
+        public long id;
         public String name, date, time, desc;
         public String recurrenceType;
         // NEW: Cloud sync fields
         public String remoteId;
         public String syncStatus;
 
-        public Event(int id, String name, String date, String time,
+        public Event(long id, String name, String date, String time,
                      String desc, String recurrenceType,
                      String remoteId, String syncStatus) {
             this.id = id;
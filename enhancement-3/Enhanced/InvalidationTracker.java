@@ -0,0 +1,57 @@
+package com.example.projectthree_sunnynguyen;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Table-level change notifications for the app database.
+ *
+ * DatabaseHelper calls {@link #notifyChanged(String)} after every committed
+ * write to a table; observers (e.g. EventRepository's live queries) re-run
+ * their query. Writers in any component (activity, sync, receivers) share the
+ * one process-wide tracker, so an open screen refreshes no matter who wrote.
+ */
+public final class InvalidationTracker {
+
+    /** Called on the writing thread; observers must hand work off, not query inline. */
+    public interface Observer {
+        void onInvalidated(String table);
+    }
+
+    private static final InvalidationTracker INSTANCE = new InvalidationTracker();
+
+    private final ConcurrentMap<String, List<Observer>> observers = new ConcurrentHashMap<>();
+
+    private InvalidationTracker() {
+    }
+
+    public static InvalidationTracker getInstance() {
+        return INSTANCE;
+    }
+
+    public void addObserver(String table, Observer observer) {
+        // get/putIfAbsent rather than computeIfAbsent, which is API 24+
+        List<Observer> list = observers.get(table);
+        if (list == null) {
+            List<Observer> created = new CopyOnWriteArrayList<>();
+            list = observers.putIfAbsent(table, created);
+            if (list == null) list = created;
+        }
+        list.add(observer);
+    }
+
+    public void removeObserver(String table, Observer observer) {
+        List<Observer> list = observers.get(table);
+        if (list != null) list.remove(observer);
+    }
+
+    public void notifyChanged(String table) {
+        List<Observer> list = observers.get(table);
+        if (list == null) return;
+        for (Observer observer : list) {
+            observer.onInvalidated(table);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.projectthree_sunnynguyen;
+
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * RecurrenceEngine computes occurrences of recurring events with plain
+ * epoch-day arithmetic: no Calendar stepping, so a device that was off for
+ * months costs the same as one that was off for a minute, and expanding a
+ * window costs one step per occurrence produced. It also reports how many
+ * occurrences were skipped, which the receiver turns into one catch-up
+ * notification.
+ *
+ * A {@link Series} is an event compiled once (anchor day, time of day and a
+ * {@link RecurrenceRule}); it answers "next after instant" in O(1) and expands
+ * a day window (the calendar grid) without allocating per occurrence.
+ *
+ * Occurrences are counted from the anchor (occurrence 0, included in COUNT):
+ * the rule's DTSTART when the row continues a series, otherwise the event's
+ * own date. Monthly/yearly events keep the anchor's day of month and clamp it
+ * to short months (Jan 31 -> Feb 28 -> Mar 31) instead of drifting, because
+ * every row of the series computes from the same anchor.
+ *
+ * Dates are "MM/dd/yyyy" and times "HH:mm", as stored in the events table
+ * (parsed and formatted by DateTimeCodec).
+ */
+public final class RecurrenceEngine {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private RecurrenceEngine() {
+    }
+
+    /** Receives expanded occurrences of one series. */
+    public interface OccurrenceSink {
+        void accept(long epochDay, long index);
+    }
+
+    /** Receives expanded occurrences of several series (by position in the list). */
+    public interface WindowSink {
+        void accept(int series, long epochDay, long index);
+    }
+
+    /**
+     * First occurrence strictly after {@code after}.
+     *
+     * @return null if the event does not recur, the series has ended, or its
+     *         date/time/rule cannot be parsed
+     */
+    public static Occurrence nextAfter(String anchorDate, String anchorTime,
+                                       String recurrenceType, long after, TimeZone tz) {
+        Series series = Series.compile(anchorDate, anchorTime, recurrenceType);
+        return series != null ? series.nextAfter(after, tz) : null;
+    }
+
+    /**
+     * Expand every series over the days [fromDay, toDay) (see {@link Series#expand}).
+     */
+    public static void expand(List<Series> series, long fromDay, long toDay, WindowSink sink) {
+        for (int i = 0; i < series.size(); i++) {
+            final int position = i;
+            series.get(i).expand(fromDay, toDay, (day, index) -> sink.accept(position, day, index));
+        }
+    }
+
+    /**
+     * A recurring event compiled for repeated queries.
+     */
+    public static final class Series {
+        private final RecurrenceRule rule;
+        private final long anchorDay;
+        private final int minuteOfDay;
+        private final String time;
+        // This row's own date and its occurrence number (0 when it is the anchor)
+        private final long startDay;
+        private final long startIndex;
+
+        // WEEKLY: weeks counted from the Monday of the anchor's week
+        private final long anchorWeekStart;
+        private final int dayMask;
+        private final int daysPerWeek;
+        private final long anchorRank;
+
+        // MONTHLY / YEARLY: months counted as year * 12 + month0
+        private final long anchorMonth;
+        private final int dayOfMonth;
+        private final int monthStep;
+
+        private Series(RecurrenceRule rule, long anchorDay, long startDay, int minuteOfDay,
+                       String time) {
+            int[] date = DateTimeCodec.civilFromDays(anchorDay);
+            this.rule = rule;
+            this.anchorDay = anchorDay;
+            this.minuteOfDay = minuteOfDay;
+            this.time = time;
+
+            int anchorDow = dayOfWeek(anchorDay);
+            this.anchorWeekStart = anchorDay - anchorDow;
+            this.dayMask = rule.byDayMask != 0 ? rule.byDayMask : 1 << anchorDow;
+            this.daysPerWeek = Integer.bitCount(dayMask);
+            this.anchorRank = rule.freq == RecurrenceRule.FREQ_WEEKLY ? weeklyRank(anchorDay) : 0;
+
+            this.anchorMonth = date[0] * 12L + (date[1] - 1);
+            this.dayOfMonth = date[2];
+            this.monthStep = rule.freq == RecurrenceRule.FREQ_YEARLY ? 12 * rule.interval : rule.interval;
+
+            this.startDay = startDay;
+            this.startIndex = startDay > anchorDay ? indexOf(firstDayOnOrAfter(startDay)) : 0;
+        }
+
+        /**
+         * @return null if the event does not recur or cannot be parsed
+         */
+        public static Series compile(String date, String time, String recurrenceType) {
+            RecurrenceRule rule = RecurrenceRule.parse(recurrenceType);
+            if (rule == null || date == null || time == null) return null;
+
+            long day = DateTimeCodec.parseDate(date);
+            int minute = DateTimeCodec.parseTime(time);
+            if (day == DateTimeCodec.NO_DAY || minute == DateTimeCodec.NO_TIME) return null;
+            long anchor = rule.anchorDay != DateTimeCodec.NO_DAY && rule.anchorDay <= day
+                    ? rule.anchorDay : day;
+            return new Series(rule, anchor, day, minute, time);
+        }
+
+        /** Epoch day of the series' first occurrence (the DTSTART, or the row's own date). */
+        public long anchorDay() {
+            return anchorDay;
+        }
+
+        /** Epoch day of the row this series was compiled from. */
+        public long startDay() {
+            return startDay;
+        }
+
+        /**
+         * First occurrence strictly after {@code after}, or null if the series ended.
+         */
+        public Occurrence nextAfter(long after, TimeZone tz) {
+            // Earliest local day whose occurrence (at minuteOfDay) is after the instant
+            long afterLocal = after + tz.getOffset(after);
+            long afterDay = Math.floorDiv(afterLocal, MILLIS_PER_DAY);
+            long afterMinute = Math.floorMod(afterLocal, MILLIS_PER_DAY) / MILLIS_PER_MINUTE;
+            long minDay = minuteOfDay > afterMinute ? afterDay : afterDay + 1;
+
+            long day = firstDayOnOrAfter(Math.max(minDay, startDay + 1));
+            long index = indexOf(day);
+            if (!inSeries(day, index)) return null;
+
+            return new Occurrence(DateTimeCodec.formatDate(day), time,
+                    DateTimeCodec.toEpochMillis(day, minuteOfDay, tz), index, index - startIndex - 1);
+        }
+
+        /**
+         * Report every occurrence after the row's own date on the days
+         * [fromDay, toDay), in order. The row's date is left out: it is an event
+         * row already. Each step is O(1) arithmetic; nothing is allocated per
+         * occurrence.
+         */
+        public void expand(long fromDay, long toDay, OccurrenceSink sink) {
+            long day = firstDayOnOrAfter(Math.max(fromDay, startDay + 1));
+            long index = indexOf(day);
+            while (day < toDay && inSeries(day, index)) {
+                sink.accept(day, index);
+                day = firstDayOnOrAfter(day + 1);
+                index++;
+            }
+        }
+
+        private boolean inSeries(long day, long index) {
+            return day <= rule.untilDay && (rule.count == 0 || index < rule.count);
+        }
+
+        // First occurrence day >= day (day must be after the anchor)
+        private long firstDayOnOrAfter(long day) {
+            switch (rule.freq) {
+                case RecurrenceRule.FREQ_DAILY:
+                    return anchorDay + ceilDiv(day - anchorDay, rule.interval) * rule.interval;
+                case RecurrenceRule.FREQ_WEEKLY: {
+                    long week = Math.floorDiv(day - anchorWeekStart, 7);
+                    if (week % rule.interval == 0) {
+                        int later = dayMask >> dayOfWeek(day);
+                        if (later != 0) {
+                            return day + Integer.numberOfTrailingZeros(later);
+                        }
+                        week++;
+                    }
+                    long activeWeek = ceilDiv(week, rule.interval) * rule.interval;
+                    return anchorWeekStart + activeWeek * 7 + Integer.numberOfTrailingZeros(dayMask);
+                }
+                default: {
+                    long k = ceilDiv(DateTimeCodec.monthIndexOf(day) - anchorMonth, monthStep);
+                    long candidate = monthlyDay(anchorMonth + k * monthStep, dayOfMonth);
+                    return candidate >= day
+                            ? candidate : monthlyDay(anchorMonth + (k + 1) * monthStep, dayOfMonth);
+                }
+            }
+        }
+
+        // Occurrence number of a day produced by firstDayOnOrAfter
+        private long indexOf(long day) {
+            switch (rule.freq) {
+                case RecurrenceRule.FREQ_DAILY:
+                    return (day - anchorDay) / rule.interval;
+                case RecurrenceRule.FREQ_WEEKLY:
+                    return weeklyRank(day) - anchorRank;
+                default:
+                    return (DateTimeCodec.monthIndexOf(day) - anchorMonth) / monthStep;
+            }
+        }
+
+        // Number of BYDAY matches from the anchor's week start through day (inclusive)
+        private long weeklyRank(long day) {
+            long week = Math.floorDiv(day - anchorWeekStart, 7);
+            long fullActiveWeeks = ceilDiv(week, rule.interval);
+            long rank = fullActiveWeeks * daysPerWeek;
+            if (week % rule.interval == 0) {
+                rank += Integer.bitCount(dayMask & ((2 << dayOfWeek(day)) - 1));
+            }
+            return rank;
+        }
+    }
+
+    // Monday = 0 ... Sunday = 6 (1970-01-01 was a Thursday)
+    private static int dayOfWeek(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7);
+    }
+
+    // Anchor day of month clamped to the length of the given month (year * 12 + month0)
+    private static long monthlyDay(long monthIndex, int dayOfMonth) {
+        int year = (int) Math.floorDiv(monthIndex, 12);
+        int month = (int) Math.floorMod(monthIndex, 12) + 1;
+        return DateTimeCodec.daysFromCivil(year, month,
+                Math.min(dayOfMonth, DateTimeCodec.daysInMonth(year, month)));
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    /**
+     * One computed occurrence.
+     */
+    public static class Occurrence {
+        public final String date;
+        public final String time;
+        public final long fireAt;
+        // Occurrence number counted from the series anchor (which is 0)
+        public final long index;
+        // Occurrences between the event's row and this one that were never delivered
+        public final long missed;
+
+        public Occurrence(String date, String time, long fireAt, long index, long missed) {
+            this.date = date;
+            this.time = time;
+            this.fireAt = fireAt;
+            this.index = index;
+            this.missed = missed;
+        }
+    }
+}
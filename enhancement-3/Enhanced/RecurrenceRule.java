@@ -0,0 +1,221 @@
+package com.example.projectthree_sunnynguyen;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compiled recurrence rule: the practical RFC 5545 RRULE subset
+ * FREQ (DAILY / WEEKLY / MONTHLY / YEARLY), INTERVAL, BYDAY (weekly rules only),
+ * COUNT and UNTIL (a date, inclusive), e.g. "FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=10".
+ *
+ * The legacy recurrence_type constants (DAILY / WEEKLY / MONTHLY) are accepted
+ * too, so existing rows keep working and the column can hold either form.
+ * Rules are parsed once and cached by their string; RecurrenceEngine does the math.
+ *
+ * Every occurrence is stored as its own event row. The rows after the first
+ * carry the series' original date as an extra "DTSTART=yyyyMMdd" part (see
+ * {@link #anchored}), so each next occurrence is computed from the original
+ * anchor, not from the previous row's (possibly clamped) date, and COUNT keeps
+ * counting from the first occurrence.
+ */
+public final class RecurrenceRule {
+
+    public static final int FREQ_DAILY = 0;
+    public static final int FREQ_WEEKLY = 1;
+    public static final int FREQ_MONTHLY = 2;
+    public static final int FREQ_YEARLY = 3;
+
+    // BYDAY bit per weekday, Monday = bit 0 (weeks start on Monday, RFC 5545 default WKST)
+    private static final String[] WEEKDAYS = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    // Distinct rule strings are few (one per recurring series), so the cache stays small
+    private static final int CACHE_LIMIT = 256;
+    private static final Map<String, RecurrenceRule> CACHE = new ConcurrentHashMap<>();
+
+    public final int freq;
+    public final int interval;
+    // Weekday bit mask, 0 = the anchor's own weekday
+    public final int byDayMask;
+    // Total occurrences including the anchor, 0 = unbounded
+    public final int count;
+    // Last allowed epoch day (inclusive), Long.MAX_VALUE = unbounded
+    public final long untilDay;
+    // The series' first occurrence (DTSTART), DateTimeCodec.NO_DAY = the row's own date
+    public final long anchorDay;
+
+    private RecurrenceRule(int freq, int interval, int byDayMask, int count, long untilDay,
+                           long anchorDay) {
+        this.freq = freq;
+        this.interval = interval;
+        this.byDayMask = byDayMask;
+        this.count = count;
+        this.untilDay = untilDay;
+        this.anchorDay = anchorDay;
+    }
+
+    /**
+     * Compile a recurrence_type value (legacy constant or RRULE string).
+     *
+     * @return null for NONE, empty or unsupported/invalid rules (treated as non-recurring)
+     */
+    public static RecurrenceRule parse(String value) {
+        if (value == null || value.isEmpty() || DatabaseHelper.RECURRENCE_NONE.equals(value)) {
+            return null;
+        }
+        RecurrenceRule cached = CACHE.get(value);
+        if (cached != null) return cached;
+
+        RecurrenceRule rule = compile(value);
+        if (rule != null) {
+            if (CACHE.size() >= CACHE_LIMIT) CACHE.clear();
+            CACHE.put(value, rule);
+        }
+        return rule;
+    }
+
+    /**
+     * The rule for a row that continues a series first dated {@code anchorDay}:
+     * the same rule with DTSTART pinned to that day. A rule that already has a
+     * DTSTART (the row was itself generated) is returned unchanged.
+     */
+    public static String anchored(String value, long anchorDay) {
+        RecurrenceRule rule = parse(value);
+        if (rule == null || rule.anchorDay != DateTimeCodec.NO_DAY) return value;
+
+        int[] ymd = DateTimeCodec.civilFromDays(anchorDay);
+        return String.format(Locale.US, "DTSTART=%04d%02d%02d;%s",
+                ymd[0], ymd[1], ymd[2], ruleParts(value));
+    }
+
+    /**
+     * The rule without its DTSTART, for a row whose date was edited: that row
+     * then starts a series of its own.
+     */
+    public static String withoutAnchor(String value) {
+        RecurrenceRule rule = parse(value);
+        if (rule == null || rule.anchorDay == DateTimeCodec.NO_DAY) return value;
+
+        StringBuilder out = new StringBuilder();
+        for (String part : ruleParts(value).split(";")) {
+            if (part.trim().toUpperCase(Locale.US).startsWith("DTSTART=")) continue;
+            if (out.length() > 0) out.append(';');
+            out.append(part);
+        }
+        return out.toString();
+    }
+
+    // The "KEY=value;..." parts of a rule: "RRULE:" prefix removed, legacy constants spelled out
+    private static String ruleParts(String value) {
+        switch (value) {
+            case DatabaseHelper.RECURRENCE_DAILY:
+            case DatabaseHelper.RECURRENCE_WEEKLY:
+            case DatabaseHelper.RECURRENCE_MONTHLY:
+                return "FREQ=" + value;
+            default:
+                break;
+        }
+        return value.regionMatches(true, 0, "RRULE:", 0, 6) ? value.substring(6) : value;
+    }
+
+    private static RecurrenceRule compile(String value) {
+        switch (value) {
+            case DatabaseHelper.RECURRENCE_DAILY:
+                return new RecurrenceRule(FREQ_DAILY, 1, 0, 0, Long.MAX_VALUE, DateTimeCodec.NO_DAY);
+            case DatabaseHelper.RECURRENCE_WEEKLY:
+                return new RecurrenceRule(FREQ_WEEKLY, 1, 0, 0, Long.MAX_VALUE, DateTimeCodec.NO_DAY);
+            case DatabaseHelper.RECURRENCE_MONTHLY:
+                return new RecurrenceRule(FREQ_MONTHLY, 1, 0, 0, Long.MAX_VALUE, DateTimeCodec.NO_DAY);
+            default:
+                break;
+        }
+
+        String rule = value.toUpperCase(Locale.US);
+        if (rule.startsWith("RRULE:")) rule = rule.substring(6);
+
+        int freq = -1;
+        int interval = 1;
+        int byDayMask = 0;
+        int count = 0;
+        long untilDay = Long.MAX_VALUE;
+        long anchorDay = DateTimeCodec.NO_DAY;
+
+        try {
+            for (String part : rule.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq <= 0) return null;
+                String key = part.substring(0, eq).trim();
+                String val = part.substring(eq + 1).trim();
+
+                switch (key) {
+                    case "FREQ":
+                        freq = parseFreq(val);
+                        if (freq < 0) return null;
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(val);
+                        if (interval < 1) return null;
+                        break;
+                    case "BYDAY":
+                        byDayMask = parseByDay(val);
+                        if (byDayMask <= 0) return null;
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(val);
+                        if (count < 1) return null;
+                        break;
+                    case "UNTIL":
+                        untilDay = parseUntil(val);
+                        break;
+                    case "DTSTART":
+                        anchorDay = parseUntil(val);
+                        break;
+                    case "WKST":
+                        if (!"MO".equals(val)) return null; // only Monday-start weeks
+                        break;
+                    default:
+                        return null; // BYMONTHDAY, BYSETPOS, ... are not supported
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        if (freq < 0) return null;
+        if (byDayMask != 0 && freq != FREQ_WEEKLY) return null;
+        return new RecurrenceRule(freq, interval, byDayMask, count, untilDay, anchorDay);
+    }
+
+    private static int parseFreq(String value) {
+        switch (value) {
+            case "DAILY": return FREQ_DAILY;
+            case "WEEKLY": return FREQ_WEEKLY;
+            case "MONTHLY": return FREQ_MONTHLY;
+            case "YEARLY": return FREQ_YEARLY;
+            default: return -1;
+        }
+    }
+
+    // "MO,WE,FR" -> bit mask (plain weekdays only, no "1MO" / "-1FR" ordinals)
+    private static int parseByDay(String value) {
+        int mask = 0;
+        for (String day : value.split(",")) {
+            int bit = -1;
+            for (int i = 0; i < WEEKDAYS.length; i++) {
+                if (WEEKDAYS[i].equals(day.trim())) bit = i;
+            }
+            if (bit < 0) return -1;
+            mask |= 1 << bit;
+        }
+        return mask;
+    }
+
+    // UNTIL / DTSTART: "yyyyMMdd" or "yyyyMMddTHHmmss[Z]" -> epoch day (the time part is ignored)
+    private static long parseUntil(String value) {
+        if (value.length() < 8) throw new NumberFormatException(value);
+        int year = Integer.parseInt(value.substring(0, 4));
+        int month = Integer.parseInt(value.substring(4, 6));
+        int day = Integer.parseInt(value.substring(6, 8));
+        return DateTimeCodec.daysFromCivil(year, month, day);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ReminderNotifier posts reminder notifications.
+ *
+ * - The notification channel is created once per process, not on every post.
+ * - A single reminder is posted under the tag "event:<id>", so it updates in
+ *   place if the same event fires again instead of stacking duplicates.
+ * - Several reminders due in the same window are coalesced into ONE digest
+ *   notification with a line per event: one heads-up alert, one IPC. It is
+ *   a plain InboxStyle notification, not a group summary, since it has no
+ *   child notifications to summarize.
+ */
+public class ReminderNotifier {
+
+    public static final String CHANNEL_ID = "event_channel";
+
+    private static final String TAG_EVENT = "event:";
+    private static final String TAG_DIGEST = "digest:";
+    // Notifications are keyed by tag; the id is constant within each tag
+    private static final int NOTIFICATION_ID = 1;
+    // Lines shown in a digest before "+N more"
+    private static final int MAX_DIGEST_LINES = 6;
+
+    private static volatile boolean channelCreated = false;
+    private static final AtomicInteger messageIds = new AtomicInteger(NOTIFICATION_ID + 1);
+
+    private final Context context;
+    private final NotificationManager notificationManager;
+
+    public ReminderNotifier(Context context) {
+        this.context = context.getApplicationContext();
+        this.notificationManager =
+                (NotificationManager) this.context.getSystemService(Context.NOTIFICATION_SERVICE);
+        ensureChannel();
+    }
+
+    private void ensureChannel() {
+        if (channelCreated || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        synchronized (ReminderNotifier.class) {
+            if (channelCreated) return;
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    "Event Reminders",
+                    NotificationManager.IMPORTANCE_DEFAULT
+            );
+            notificationManager.createNotificationChannel(channel);
+            channelCreated = true;
+        }
+    }
+
+    /**
+     * Post reminders that fired together: one keyed notification for a single
+     * reminder, one digest notification for several.
+     */
+    public void notifyReminders(List<ReminderScheduler.DueReminder> reminders) {
+        notifyReminders(reminders, reminders.size() + " events now");
+    }
+
+    /**
+     * @param digestTitle title used when several reminders become one digest
+     */
+    public void notifyReminders(List<ReminderScheduler.DueReminder> reminders, String digestTitle) {
+        if (reminders.isEmpty()) return;
+
+        if (reminders.size() == 1) {
+            ReminderScheduler.DueReminder reminder = reminders.get(0);
+            Notification notification = baseBuilder()
+                    .setContentTitle("Event Today")
+                    .setContentText(reminder.name + " at " + reminder.time)
+                    .setWhen(reminder.fireAt)
+                    .build();
+            notificationManager.notify(TAG_EVENT + reminder.eventId, NOTIFICATION_ID, notification);
+            return;
+        }
+
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+                .setBigContentTitle(digestTitle);
+        StringBuilder summary = new StringBuilder();
+        int shown = Math.min(reminders.size(), MAX_DIGEST_LINES);
+        for (int i = 0; i < shown; i++) {
+            ReminderScheduler.DueReminder reminder = reminders.get(i);
+            style.addLine(reminder.time + "  " + reminder.name);
+            if (i > 0) summary.append(", ");
+            summary.append(reminder.name);
+        }
+        if (reminders.size() > shown) {
+            style.setSummaryText("+" + (reminders.size() - shown) + " more");
+        }
+
+        Notification digest = baseBuilder()
+                .setContentTitle(digestTitle)
+                .setContentText(summary)
+                .setStyle(style)
+                .setNumber(reminders.size())
+                .setWhen(reminders.get(0).fireAt)
+                .build();
+        // Keyed by the window's first fire time: re-dispatching the same window updates it
+        notificationManager.notify(TAG_DIGEST + reminders.get(0).fireAt, NOTIFICATION_ID, digest);
+    }
+
+    /**
+     * Post a one-off message (e.g. an error) that is not tied to an event.
+     */
+    public void notifyMessage(String title, String message) {
+        Notification notification = baseBuilder()
+                .setContentTitle(title)
+                .setContentText(message)
+                .build();
+        notificationManager.notify(messageIds.incrementAndGet(), notification);
+    }
+
+    private NotificationCompat.Builder baseBuilder() {
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_dialog_info)
+                .setAutoCancel(true);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * Restores the reminder alarm after events that invalidate it.
+ *
+ * - Boot / app update: the OS dropped every alarm. Reminders are still in
+ *   scheduled_reminders, so one MIN(fire_at) lookup and one alarm restore them all.
+ * - Time zone change: event dates/times are wall-clock values, so fire times are
+ *   recomputed and only the reminders that moved are written back.
+ * - Clock change: fire times are still correct; the alarm is re-registered so
+ *   anything that became due is dispatched right away.
+ */
+public class ReminderReconcileReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "ReminderReconcile";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final String action = intent.getAction();
+        if (action == null) return;
+
+        final PendingResult pendingResult = goAsync();
+        final Context appContext = context.getApplicationContext();
+
+        // Shared DB thread, as for the reminder receiver, so reconciliation never races a dispatch
+        AppExecutors.from(context).db().execute(() -> {
+            try {
+                ReminderScheduler scheduler = new ReminderScheduler(appContext);
+
+                switch (action) {
+                    case Intent.ACTION_TIMEZONE_CHANGED:
+                        int moved = scheduler.rebaseFireTimes();
+                        Log.d(TAG, "Time zone changed, rebased " + moved + " reminders");
+                        break;
+                    case Intent.ACTION_BOOT_COMPLETED:
+                    case Intent.ACTION_MY_PACKAGE_REPLACED:
+                    case Intent.ACTION_TIME_CHANGED:
+                        scheduler.rearm(true);
+                        Log.d(TAG, "Re-armed reminder alarm after " + action);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Reminder reconciliation failed", e);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+}
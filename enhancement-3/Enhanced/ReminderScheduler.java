@@ -0,0 +1,216 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * ReminderScheduler keeps every upcoming reminder in the indexed
+ * scheduled_reminders table and registers only ONE alarm with the OS: the
+ * earliest fire time. When that alarm fires, EventReminderReceiver dispatches
+ * every reminder that is due and calls {@link #rearm()} for the next one.
+ *
+ * This avoids one PendingIntent (and one wakeup) per event and the per-app
+ * alarm limit, no matter how many events are scheduled.
+ */
+public class ReminderScheduler {
+
+    private static final String TAG = "ReminderScheduler";
+
+    public static final String ACTION_REMINDERS_DUE =
+            "com.example.projectthree_sunnynguyen.action.REMINDERS_DUE";
+
+    // Reminders due this close together are dispatched (and notified) as one batch
+    public static final long COALESCE_WINDOW_MS = 60_000L;
+
+    private final Context context;
+    private final DatabaseHelper db;
+
+    public ReminderScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        this.db = new DatabaseHelper(this.context);
+    }
+
+    /**
+     * Add (or move) the reminder for an event and re-arm if it is now the earliest.
+     */
+    public void schedule(long eventId, long fireAt) {
+        db.scheduleReminder(eventId, fireAt);
+        rearm();
+    }
+
+    /**
+     * Move an edited event's reminder to its new date/time, or drop it if that
+     * is no longer in the future. Re-arms only if the earliest reminder changed.
+     */
+    public void reschedule(long eventId, String date, String time) {
+        long fireAt = fireTimeOf(date, time, TimeZone.getDefault());
+        if (fireAt > System.currentTimeMillis()) {
+            db.scheduleReminder(eventId, fireAt);
+        } else {
+            db.removeReminder(eventId);
+        }
+        rearm();
+    }
+
+    /**
+     * Delete events together with their reminders (one transaction), then
+     * re-arm once for the whole batch.
+     *
+     * @return number of events deleted
+     */
+    public int deleteEvents(List<Long> eventIds) {
+        int deleted = db.deleteEvents(eventIds);
+        rearm();
+        return deleted;
+    }
+
+    /**
+     * Register the single OS alarm for the earliest pending reminder,
+     * or cancel it when nothing is scheduled. Skips the AlarmManager call when
+     * the armed time (persisted in sync_metadata) is already correct and the
+     * alarm's PendingIntent still exists (a force-stop clears it without
+     * touching the persisted record).
+     */
+    public void rearm() {
+        rearm(false);
+    }
+
+    /**
+     * @param force re-register even if the persisted record says the alarm is
+     *              already armed (after it fired, or after a reboot cleared it)
+     */
+    public void rearm(boolean force) {
+        long next = db.getNextReminderTime();
+        if (!force && next == db.getArmedReminderTime() && (next < 0 || isArmed())) {
+            return;
+        }
+
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (am == null) return;
+
+        PendingIntent pi = nextDueIntent(PendingIntent.FLAG_UPDATE_CURRENT);
+        if (next < 0) {
+            am.cancel(pi);
+            // Dropped too, so isArmed() only sees an intent while an alarm is set
+            pi.cancel();
+        } else {
+            setAlarm(am, next, pi);
+        }
+        db.setArmedReminderTime(next);
+    }
+
+    /**
+     * After a time zone change the wall-clock date/time of each event maps to a
+     * different instant. Recompute fire_at for pending reminders and write back
+     * only the ones that moved, then re-arm.
+     *
+     * @return number of reminders whose fire time changed
+     */
+    public int rebaseFireTimes() {
+        int moved = recomputeFireTimes();
+        rearm(true);
+        return moved;
+    }
+
+    /**
+     * Same as {@link #rebaseFireTimes()} after events were changed in bulk
+     * (e.g. by a sync); the alarm is only touched if the earliest reminder moved.
+     */
+    public int refreshFireTimes() {
+        int moved = recomputeFireTimes();
+        rearm();
+        return moved;
+    }
+
+    private int recomputeFireTimes() {
+        TimeZone tz = TimeZone.getDefault();
+        List<DatabaseHelper.ReminderTime> reminders = db.getReminderTimes();
+
+        int moved = 0;
+        for (DatabaseHelper.ReminderTime reminder : reminders) {
+            long fireAt = fireTimeOf(reminder.date, reminder.time, tz);
+            if (fireAt < 0) {
+                Log.w(TAG, "Skipping reminder with unparseable date/time: " + reminder.eventId);
+            } else if (fireAt != reminder.fireAt) {
+                reminder.fireAt = fireAt;
+                reminder.changed = true;
+                moved++;
+            }
+        }
+
+        if (moved > 0) {
+            db.updateReminderTimes(reminders);
+        }
+        return moved;
+    }
+
+    // Event date/time as epoch millis in the given time zone, or -1
+    private static long fireTimeOf(String date, String time, TimeZone tz) {
+        long day = DateTimeCodec.parseDate(date);
+        int minute = DateTimeCodec.parseTime(time);
+        if (day == DateTimeCodec.NO_DAY || minute == DateTimeCodec.NO_TIME) return -1;
+        return DateTimeCodec.toEpochMillis(day, minute, tz);
+    }
+
+    // The alarm carries no payload: due reminders and their event details are
+    // read from the database when it fires, so edits are never stale
+    private PendingIntent nextDueIntent(int flags) {
+        Intent i = new Intent(context, EventReminderReceiver.class);
+        i.setAction(ACTION_REMINDERS_DUE);
+        return PendingIntent.getBroadcast(
+                context,
+                RequestCodes.REMINDER_NEXT_DUE, // only one alarm is ever registered
+                i,
+                flags | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+
+    // Whether the OS still holds the alarm's PendingIntent
+    private boolean isArmed() {
+        return nextDueIntent(PendingIntent.FLAG_NO_CREATE) != null;
+    }
+
+    /**
+     * - API 31+ (Android 12+): use INEXACT alarm to avoid SCHEDULE_EXACT_ALARM requirement.
+     * - API 23–30: use setExactAndAllowWhileIdle.
+     * - API <23: use setExact.
+     */
+    private static void setAlarm(AlarmManager am, long triggerAt, PendingIntent pi) {
+        if (Build.VERSION.SDK_INT >= 31) {
+            am.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pi);
+        } else if (Build.VERSION.SDK_INT >= 23) {
+            am.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pi);
+        } else {
+            am.setExact(AlarmManager.RTC_WAKEUP, triggerAt, pi);
+        }
+    }
+
+    /**
+     * A reminder that is due, joined with the event details it needs.
+     */
+    public static class DueReminder {
+        public final long eventId;
+        public final String name;
+        public final String date;
+        public final String time;
+        public final String recurrenceType;
+        public final long fireAt;
+
+        public DueReminder(long eventId, String name, String date, String time,
+                           String recurrenceType, long fireAt) {
+            this.eventId = eventId;
+            this.name = name;
+            this.date = date;
+            this.time = time;
+            this.recurrenceType = recurrenceType;
+            this.fireAt = fireAt;
+        }
+    }
+}
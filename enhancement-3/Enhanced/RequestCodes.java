@@ -0,0 +1,21 @@
+package com.example.projectthree_sunnynguyen;
+
+/**
+ * Every fixed PendingIntent request code in the app, allocated in one place
+ * so two alarms can never collide.
+ *
+ * Per-item PendingIntents (e.g. SMS status reports) do not get request codes;
+ * they are made distinct by their data URI, which holds the full 64-bit row id.
+ * A row id must never be cast to an int request code.
+ */
+final class RequestCodes {
+
+    // ReminderScheduler: the single next-due reminder alarm
+    static final int REMINDER_NEXT_DUE = 1;
+
+    // SmsDispatcher: the outbox drain/retry alarm
+    static final int SMS_DRAIN = 2;
+
+    private RequestCodes() {
+    }
+}
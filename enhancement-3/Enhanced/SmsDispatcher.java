@@ -0,0 +1,220 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Build;
+import android.telephony.SmsManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SmsDispatcher sends SMS reminders through the durable sms_outbox table.
+ *
+ * - Messages are queued first, so nothing is lost if sending fails or the
+ *   process dies; a queued message is retried with exponential backoff.
+ * - Sends are rate limited (short bursts, and a rolling 30-minute quota
+ *   below the platform's 30-messages-per-30-minutes SMS limit). Both are
+ *   counted from the outbox's sent times, so back-to-back enqueues and
+ *   process restarts cannot skip the pause between bursts.
+ * - Long messages are split with divideMessage() and sent as multipart.
+ * - Sent and delivered reports come back to SmsStatusReceiver and update
+ *   the outbox row.
+ */
+public class SmsDispatcher {
+
+    private static final String TAG = "SmsDispatcher";
+
+    public static final String ACTION_DRAIN =
+            "com.example.projectthree_sunnynguyen.action.SMS_DRAIN";
+    public static final String ACTION_SENT =
+            "com.example.projectthree_sunnynguyen.action.SMS_SENT";
+    public static final String ACTION_DELIVERED =
+            "com.example.projectthree_sunnynguyen.action.SMS_DELIVERED";
+
+    // Rolling quota (the platform allows 30 per 30 minutes; keep some headroom)
+    private static final long RATE_WINDOW_MS = 30 * 60_000L;
+    private static final int MAX_PER_WINDOW = 25;
+    // Messages sent back to back before pausing
+    private static final int MAX_BURST = 3;
+    private static final long BURST_PAUSE_MS = 5_000L;
+
+    // Retry backoff: 30s, 1m, 2m, 4m ... capped at 1h, then give up
+    private static final long BASE_BACKOFF_MS = 30_000L;
+    private static final long MAX_BACKOFF_MS = 60 * 60_000L;
+    private static final int MAX_ATTEMPTS = 5;
+
+    // A SENDING message with no sent report after this long counts as a failed attempt
+    private static final long SENDING_TIMEOUT_MS = 10 * 60_000L;
+
+    private final Context context;
+    private final DatabaseHelper db;
+
+    public SmsDispatcher(Context context) {
+        this.context = context.getApplicationContext();
+        this.db = new DatabaseHelper(this.context);
+    }
+
+    /**
+     * Queue one SMS per body to the user's reminder number and start draining.
+     */
+    public void enqueue(List<String> bodies) {
+        if (bodies.isEmpty()) return;
+        db.enqueueSms(getDestination(), bodies);
+        drain();
+    }
+
+    /**
+     * Send as many queued messages as the rate limit allows, then arm the
+     * drain alarm for the next send or retry, or for when the oldest SENDING
+     * message times out (so it is retried or given up on even if nothing else
+     * is enqueued).
+     */
+    public void drain() {
+        long now = System.currentTimeMillis();
+        for (long staleId : db.getStaleSmsIds(now - SENDING_TIMEOUT_MS)) {
+            onSendFailed(staleId);
+        }
+
+        int quota = MAX_PER_WINDOW - db.countSmsSentSince(now - RATE_WINDOW_MS);
+        // Messages sent within the last pause belong to the current burst
+        int burst = MAX_BURST - db.countSmsSentSince(now - BURST_PAUSE_MS);
+        int budget = Math.min(burst, quota);
+        if (budget > 0) {
+            for (OutgoingSms sms : db.getSendableSms(now, budget)) {
+                send(sms, now);
+            }
+        }
+
+        long next = db.getNextSmsAttemptTime();
+        long oldestSending = db.getOldestSmsSendingTime();
+        if (oldestSending >= 0) {
+            long timeout = oldestSending + SENDING_TIMEOUT_MS;
+            next = next < 0 ? timeout : Math.min(next, timeout);
+        }
+        if (next >= 0) {
+            long pause = quota <= MAX_BURST ? RATE_WINDOW_MS / MAX_PER_WINDOW : BURST_PAUSE_MS;
+            scheduleDrain(Math.max(next, now + pause));
+        }
+    }
+
+    /**
+     * A send (or one of its parts) failed: back off and retry, or give up.
+     */
+    public void onSendFailed(long smsId) {
+        int attempts = db.getSmsAttempts(smsId);
+        long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts, 16));
+        long nextAttemptAt = System.currentTimeMillis() + backoff;
+
+        if (!db.recordSmsFailure(smsId, nextAttemptAt, MAX_ATTEMPTS)) {
+            return; // another part of the same message already reported the failure
+        }
+
+        if (attempts + 1 >= MAX_ATTEMPTS) {
+            Log.w(TAG, "Giving up on SMS " + smsId + " after " + MAX_ATTEMPTS + " attempts");
+            new ReminderNotifier(context).notifyMessage("SMS failed",
+                    "Could not send an SMS reminder");
+        } else {
+            Log.d(TAG, "SMS " + smsId + " failed, retrying in " + backoff / 1000 + "s");
+            scheduleDrain(nextAttemptAt);
+        }
+    }
+
+    private void send(OutgoingSms sms, long now) {
+        boolean marked = false;
+        try {
+            SmsManager smsManager = SmsManager.getDefault();
+            ArrayList<String> parts = smsManager.divideMessage(sms.body);
+            db.markSmsSending(sms.id, parts.size(), now);
+            marked = true;
+
+            ArrayList<PendingIntent> sentIntents = new ArrayList<>(parts.size());
+            ArrayList<PendingIntent> deliveredIntents = new ArrayList<>(parts.size());
+            for (int part = 0; part < parts.size(); part++) {
+                sentIntents.add(statusIntent(ACTION_SENT, sms.id, part));
+                // One delivery report (for the last part) is enough to mark the message
+                deliveredIntents.add(part == parts.size() - 1
+                        ? statusIntent(ACTION_DELIVERED, sms.id, part) : null);
+            }
+
+            smsManager.sendMultipartTextMessage(
+                    sms.destination, null, parts, sentIntents, deliveredIntents);
+        } catch (Exception e) {
+            Log.e(TAG, "Could not send SMS " + sms.id, e);
+            if (!marked) {
+                // recordSmsFailure only counts SENDING rows; without this the
+                // message would be retried at once, forever, with no backoff
+                db.markSmsSending(sms.id, 0, now);
+            }
+            onSendFailed(sms.id);
+        }
+    }
+
+    // The data URI makes each (message, part) PendingIntent distinct without request codes
+    private PendingIntent statusIntent(String action, long smsId, int part) {
+        Intent i = new Intent(action, Uri.parse("sms-outbox:" + smsId + "/" + part),
+                context, SmsStatusReceiver.class);
+        return PendingIntent.getBroadcast(context, 0, i,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private void scheduleDrain(long triggerAt) {
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (am == null) return;
+
+        Intent i = new Intent(context, SmsStatusReceiver.class);
+        i.setAction(ACTION_DRAIN);
+        PendingIntent pi = PendingIntent.getBroadcast(context, RequestCodes.SMS_DRAIN, i,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        // Retries do not need to be exact
+        if (Build.VERSION.SDK_INT >= 23) {
+            am.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pi);
+        } else {
+            am.set(AlarmManager.RTC_WAKEUP, triggerAt, pi);
+        }
+    }
+
+    private String getDestination() {
+        SharedPreferences prefs = context.getSharedPreferences("prefs", Context.MODE_PRIVATE);
+        // Replace "5555555555" with your test phone number or dynamic user number
+        return prefs.getString("sms_number", "5555555555");
+    }
+
+    /**
+     * Outbox id from a status intent's data URI (sms-outbox:<id>/<part>), or -1.
+     */
+    public static long smsIdFromIntent(Intent intent) {
+        Uri data = intent.getData();
+        if (data == null) return -1;
+        String ssp = data.getSchemeSpecificPart();
+        int slash = ssp.indexOf('/');
+        try {
+            return Long.parseLong(slash >= 0 ? ssp.substring(0, slash) : ssp);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * A queued message ready to be sent.
+     */
+    public static class OutgoingSms {
+        public final long id;
+        public final String destination;
+        public final String body;
+        public final int attempts;
+
+        public OutgoingSms(long id, String destination, String body, int attempts) {
+            this.id = id;
+            this.destination = destination;
+            this.body = body;
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * Receives SMS sent/delivered reports and the outbox drain alarm, and updates
+ * the sms_outbox row through SmsDispatcher.
+ */
+public class SmsStatusReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "SmsStatusReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final String action = intent.getAction();
+        if (action == null) return;
+
+        // Result code belongs to this broadcast; read it before leaving onReceive
+        final int resultCode = getResultCode();
+        final long smsId = SmsDispatcher.smsIdFromIntent(intent);
+        final PendingResult pendingResult = goAsync();
+        final Context appContext = context.getApplicationContext();
+
+        // Shared DB thread, as for the reminder receivers, so outbox updates are serialized
+        AppExecutors.from(context).db().execute(() -> {
+            try {
+                SmsDispatcher dispatcher = new SmsDispatcher(appContext);
+                DatabaseHelper db = new DatabaseHelper(appContext);
+
+                switch (action) {
+                    case SmsDispatcher.ACTION_SENT:
+                        if (smsId < 0) break;
+                        if (resultCode == Activity.RESULT_OK) {
+                            db.markSmsPartSent(smsId);
+                        } else {
+                            Log.w(TAG, "SMS " + smsId + " failed with result " + resultCode);
+                            dispatcher.onSendFailed(smsId);
+                        }
+                        break;
+                    case SmsDispatcher.ACTION_DELIVERED:
+                        if (smsId >= 0) db.markSmsDelivered(smsId);
+                        break;
+                    case SmsDispatcher.ACTION_DRAIN:
+                        dispatcher.drain();
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "SMS status handling failed", e);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.projectthree_sunnynguyen;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.Locale;
+
+/**
+ * Startup timing for one launch of EventsGridActivity:
+ *
+ * - first frame: the first draw of the window
+ * - content: the first time event rows are on screen (cached or loaded)
+ * - full data: the complete list from the database is on screen
+ *
+ * Times are measured from process start on a cold launch, and from
+ * onCreate otherwise. They are logged, reported to the system with
+ * reportFullyDrawn(), and kept in the "startup_metrics" preferences: the
+ * latest launch, plus a short history for spotting regressions.
+ *
+ * A launch is cold only when it is the first in the process and comes
+ * within {@link #COLD_LAUNCH_WINDOW_MS} of Application.onCreate; in a
+ * process started earlier by a receiver (boot, alarm, SMS) it is warm.
+ */
+final class StartupTracer {
+
+    private static final String TAG = "Startup";
+
+    private static final String PREFS = "startup_metrics";
+    private static final String KEY_LAST = "last";
+    private static final String KEY_HISTORY = "history";
+    private static final int HISTORY_SIZE = 20;
+    private static final long COLD_LAUNCH_WINDOW_MS = 5000;
+
+    // False until the first launch in this process has been traced
+    private static boolean processLaunched;
+
+    private final Activity activity;
+    private final boolean cold;
+    private final long startedAt;
+    private long firstFrameAt = -1;
+    private long contentAt = -1;
+    private long fullDataAt = -1;
+
+    StartupTracer(Activity activity) {
+        this.activity = activity;
+        long now = SystemClock.uptimeMillis();
+        long appCreatedAt = ((EventsApplication) activity.getApplicationContext()).getCreatedAt();
+        this.cold = !processLaunched && now - appCreatedAt <= COLD_LAUNCH_WINDOW_MS;
+        processLaunched = true;
+        if (!cold) {
+            this.startedAt = now;
+        } else {
+            this.startedAt = Build.VERSION.SDK_INT >= 24 ? Process.getStartUptimeMillis() : appCreatedAt;
+        }
+    }
+
+    /**
+     * Run {@code action} once, right after the first frame of {@code view} is drawn.
+     */
+    void onFirstFrame(View view, Runnable action) {
+        ViewTreeObserver.OnPreDrawListener[] holder = new ViewTreeObserver.OnPreDrawListener[1];
+        holder[0] = () -> {
+            view.getViewTreeObserver().removeOnPreDrawListener(holder[0]);
+            if (firstFrameAt < 0) firstFrameAt = SystemClock.uptimeMillis();
+            // Posted, so it runs after this frame has been drawn
+            view.post(action);
+            return true;
+        };
+        view.getViewTreeObserver().addOnPreDrawListener(holder[0]);
+    }
+
+    void markContent() {
+        if (contentAt < 0) contentAt = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * The complete data is on screen: record this launch (once).
+     */
+    void markFullData() {
+        if (fullDataAt >= 0) return;
+        markContent();
+        fullDataAt = SystemClock.uptimeMillis();
+        activity.reportFullyDrawn();
+
+        String entry = String.format(Locale.US, "%s,%d,%d,%d",
+                cold ? "cold" : "warm", since(firstFrameAt), since(contentAt), since(fullDataAt));
+        Log.i(TAG, "EventsGridActivity " + entry.replace(",", " ")
+                + " ms (first frame, content, full data)");
+
+        SharedPreferences prefs = activity.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        String history = prefs.getString(KEY_HISTORY, "");
+        history = history.isEmpty() ? entry : entry + ";" + history;
+        int cut = -1;
+        for (int i = 0, n = 0; i < history.length(); i++) {
+            if (history.charAt(i) == ';' && ++n == HISTORY_SIZE) {
+                cut = i;
+                break;
+            }
+        }
+        if (cut >= 0) history = history.substring(0, cut);
+
+        // apply(): written in the background, off the UI thread
+        prefs.edit().putString(KEY_LAST, entry).putString(KEY_HISTORY, history).apply();
+    }
+
+    private long since(long at) {
+        return at < 0 ? -1 : at - startedAt;
+    }
+}
@@ -1,13 +1,17 @@
 package com.example.projectthree_sunnynguyen;
 
 import android.content.Context;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * SyncManager orchestrates bidirectional synchronization between local SQLite and remote API.
@@ -16,26 +20,62 @@ import java.util.concurrent.Executors;
  * 1. Uploading local events to the server
  * 2. Downloading remote events from the server
  * 3. Merging remote events into local database
- * 4. Conflict resolution (simple: remote wins)
+ * 4. Conflict resolution (field-level three-way merge against the last server
+ *    copy; fields changed on both sides are recorded for review, see ConflictResolver)
+ * 5. Anti-entropy reconciliation (hash tree) when local state may have drifted
+ *
+ * NEW: Owns no threads. Sync runs on the app's I/O pool, every sync write
+ * (downloaded pages, sync marks, deletions, reminder refresh, sync timestamp)
+ * runs on the serialized DB executor (see AppExecutors), and at most one sync
+ * runs per process: a sync requested while another is in flight (e.g. from an
+ * activity recreated by a rotation) just receives that sync's result.
  */
 public class SyncManager {
 
     private static final String TAG = "SyncManager";
+
+    // Number of event bodies requested per round trip in the second download phase
+    private static final int BODY_BATCH_SIZE = 100;
     
+    // Callbacks of the sync in flight (null when idle), shared by every SyncManager
+    private static final Object SYNC_LOCK = new Object();
+    private static List<SyncCallback> inFlight;
+
     private final Context context;
     private final DatabaseHelper db;
-    private final ExecutorService executor;
-    private final Handler mainHandler;
+    private final AppExecutors executors;
+    private final DownloadPipeline downloadPipeline;
 
     public interface SyncCallback {
         void onSyncComplete(boolean success, String message);
     }
 
     public SyncManager(Context context) {
-        this.context = context;
+        this.context = context.getApplicationContext();
         this.db = new DatabaseHelper(context);
-        this.executor = Executors.newSingleThreadExecutor();
-        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.executors = AppExecutors.from(context);
+        // Pages download on the I/O pool and are written by the single DB thread
+        this.downloadPipeline = new DownloadPipeline(executors.io(),
+                ApiService::downloadEventsByIds,
+                this::applyOnDbThread);
+    }
+
+    // Pipeline sink: hand the page to the DB thread and wait, so the pipeline's
+    // back-pressure still holds and sync writes queue behind (not against) UI work
+    private int applyOnDbThread(List<ApiService.RemoteEvent> page) {
+        return onDbThread(() -> db.applyRemoteEvents(page));
+    }
+
+    // NEW: Every sync write runs on the DB executor; the I/O thread waits for it
+    private <T> T onDbThread(Callable<T> write) {
+        try {
+            return executors.db().submit(write).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing to the database", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Database write failed", e.getCause());
+        }
     }
 
     /**
@@ -43,7 +83,16 @@ public class SyncManager {
      * This method runs on a background thread and calls the callback on the main thread.
      */
     public void performSync(SyncCallback callback) {
-        executor.execute(() -> {
+        synchronized (SYNC_LOCK) {
+            if (inFlight != null) {
+                inFlight.add(callback);
+                return;
+            }
+            inFlight = new ArrayList<>();
+            inFlight.add(callback);
+        }
+
+        executors.io().execute(() -> {
             try {
                 Log.d(TAG, "Starting sync operation...");
 
@@ -52,12 +101,34 @@ public class SyncManager {
                 Log.d(TAG, "Upload step: " + (uploadSuccess ? "SUCCESS" : "FAILED"));
 
                 // Step 2: Download remote events from server
-                boolean downloadSuccess = downloadRemoteEvents();
-                Log.d(TAG, "Download step: " + (downloadSuccess ? "SUCCESS" : "FAILED"));
+                // (or repair drift via hash tree reconciliation when it was requested)
+                boolean downloadSuccess;
+                if (db.isReconcileRequested()) {
+                    downloadSuccess = reconcileWithServer();
+                    if (downloadSuccess) {
+                        onDbThread(() -> {
+                            db.setReconcileRequested(false);
+                            return null;
+                        });
+                    }
+                    Log.d(TAG, "Reconcile step: " + (downloadSuccess ? "SUCCESS" : "FAILED"));
+                } else {
+                    downloadSuccess = downloadRemoteEvents();
+                    Log.d(TAG, "Download step: " + (downloadSuccess ? "SUCCESS" : "FAILED"));
+                }
+
+                // Remote edits may have moved events; deleted ones already lost their reminders
+                int movedReminders = onDbThread(() -> new ReminderScheduler(context).refreshFireTimes());
+                if (movedReminders > 0) {
+                    Log.d(TAG, "Moved " + movedReminders + " reminders after sync");
+                }
 
                 // Step 3: Update last sync timestamp
                 if (uploadSuccess || downloadSuccess) {
-                    db.updateLastSyncTimestamp();
+                    onDbThread(() -> {
+                        db.updateLastSyncTimestamp();
+                        return null;
+                    });
                     Log.d(TAG, "Updated last sync timestamp");
                 }
 
@@ -67,17 +138,29 @@ public class SyncManager {
                         ? "Sync completed successfully"
                         : "Sync completed with some errors";
 
-                // Call callback on main thread
-                mainHandler.post(() -> callback.onSyncComplete(overallSuccess, message));
+                finish(overallSuccess, message);
 
             } catch (Exception e) {
                 Log.e(TAG, "Sync failed with exception", e);
-                mainHandler.post(() ->
-                        callback.onSyncComplete(false, "Sync failed: " + e.getMessage()));
+                finish(false, "Sync failed: " + e.getMessage());
             }
         });
     }
 
+    // Report to every caller waiting on this sync, on the main thread
+    private void finish(boolean success, String message) {
+        List<SyncCallback> callbacks;
+        synchronized (SYNC_LOCK) {
+            callbacks = inFlight;
+            inFlight = null;
+        }
+        executors.logMetrics("sync finished");
+        Executor mainThread = executors.mainThread();
+        for (SyncCallback callback : callbacks) {
+            mainThread.execute(() -> callback.onSyncComplete(success, message));
+        }
+    }
+
     /**
      * Upload unsynced local events to the server.
      * Marks successfully uploaded events as SYNCED.
@@ -97,22 +180,26 @@ public class SyncManager {
             Log.d(TAG, "Uploading " + unsyncedEvents.size() + " unsynced events...");
 
             // Upload events to server
-            List<String> remoteIds = ApiService.uploadEvents(unsyncedEvents);
-
-            // Mark successfully uploaded events as synced
-            int successCount = 0;
-            for (int i = 0; i < unsyncedEvents.size(); i++) {
-                EventsGridActivity.Event event = unsyncedEvents.get(i);
-                String remoteId = remoteIds.get(i);
-
-                if (remoteId != null && !remoteId.isEmpty()) {
-                    db.markEventAsSynced(event.id, remoteId);
-                    successCount++;
-                    Log.d(TAG, "Marked event " + event.id + " as synced with remote ID: " + remoteId);
-                } else {
-                    Log.w(TAG, "Failed to upload event " + event.id);
+            List<ApiService.ManifestEntry> uploaded = ApiService.uploadEvents(unsyncedEvents);
+
+            // Mark successfully uploaded events as synced (one DB-thread task for the batch)
+            int successCount = onDbThread(() -> {
+                int marked = 0;
+                for (int i = 0; i < unsyncedEvents.size(); i++) {
+                    EventsGridActivity.Event event = unsyncedEvents.get(i);
+                    ApiService.ManifestEntry entry = uploaded.get(i);
+                    String remoteId = entry != null ? entry.remoteId : null;
+
+                    if (remoteId != null && !remoteId.isEmpty()) {
+                        db.markEventAsSynced(event.id, remoteId, entry.version);
+                        marked++;
+                        Log.d(TAG, "Marked event " + event.id + " as synced with remote ID: " + remoteId);
+                    } else {
+                        Log.w(TAG, "Failed to upload event " + event.id);
+                    }
                 }
-            }
+                return marked;
+            });
 
             Log.d(TAG, "Successfully uploaded " + successCount + "/" + unsyncedEvents.size() + " events");
             return successCount > 0 || unsyncedEvents.isEmpty();
@@ -125,72 +212,211 @@ public class SyncManager {
 
     /**
      * Download remote events from server and merge into local database.
-     * Avoids duplicates by checking remote_id.
-     * 
+     *
+     * Two phases: first fetch the compact (remote_id, version) manifest and diff it
+     * against local remote_id/remote_version, then fetch full bodies only for the
+     * new or changed IDs, in batches. Falls back to a full download when the server
+     * has no manifest endpoint.
+     *
      * @return true if download was successful
      */
     private boolean downloadRemoteEvents() {
         try {
-            Log.d(TAG, "Downloading events from server...");
+            Log.d(TAG, "Downloading event manifest from server...");
+
+            List<ApiService.ManifestEntry> manifest = ApiService.downloadManifest();
+            if (manifest == null) {
+                Log.d(TAG, "No manifest available, falling back to full download");
+                return downloadAllRemoteEvents();
+            }
+
+            // Diff manifest against local versions (one query, no per-event lookups)
+            Map<String, Long> localVersions = db.getRemoteVersions();
+            List<String> changedIds = new ArrayList<>();
+            for (ApiService.ManifestEntry entry : manifest) {
+                Long localVersion = localVersions.get(entry.remoteId);
+                if (localVersion == null || localVersion != entry.version) {
+                    changedIds.add(entry.remoteId);
+                }
+            }
+
+            Log.d(TAG, "Manifest lists " + manifest.size() + " events, "
+                    + changedIds.size() + " new or changed");
 
-            // Download events from server
-            List<ApiService.RemoteEvent> remoteEvents = ApiService.downloadEvents();
+            // Fetch and apply bodies for the changed IDs only
+            int appliedCount = fetchAndApply(changedIds);
 
-            if (remoteEvents.isEmpty()) {
-                Log.d(TAG, "No remote events to download");
-                return true; // Nothing to download is considered success
+            Log.d(TAG, "Applied " + appliedCount + " new or changed events from server");
+            return true;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error during download", e);
+            return false;
+        }
+    }
+
+    /**
+     * Download full bodies for the given remote IDs in batches and apply each batch.
+     * Downloads run ahead on the network thread while earlier batches are written
+     * (see DownloadPipeline).
+     *
+     * @return number of rows inserted or updated
+     */
+    private int fetchAndApply(List<String> remoteIds) throws Exception {
+        return downloadPipeline.run(remoteIds, BODY_BATCH_SIZE);
+    }
+
+    /**
+     * Anti-entropy reconciliation.
+     *
+     * Builds an EventHashTree over local events, then walks the server's tree one
+     * level per round trip, descending only into nodes whose hashes differ. For the
+     * mismatched month buckets it fetches the bucket manifests, downloads changed
+     * bodies and deletes synced rows the server no longer has.
+     *
+     * @return true if local state now matches the server (or the server lacks
+     *         tree support and the regular download succeeded instead)
+     */
+    private boolean reconcileWithServer() {
+        try {
+            List<EventHashTree.Entry> localEntries = db.getRemoteEventKeys();
+            EventHashTree localTree = new EventHashTree();
+            for (EventHashTree.Entry entry : localEntries) {
+                localTree.add(entry);
             }
 
-            Log.d(TAG, "Downloaded " + remoteEvents.size() + " remote events");
-
-            // Insert new remote events into local database
-            int insertedCount = 0;
-            for (ApiService.RemoteEvent remoteEvent : remoteEvents) {
-                // Check if event already exists locally
-                if (!db.eventExistsByRemoteId(remoteEvent.remoteId)) {
-                    long localId = db.insertEventFromRemote(
-                            remoteEvent.remoteId,
-                            remoteEvent.name,
-                            remoteEvent.date,
-                            remoteEvent.time,
-                            remoteEvent.description,
-                            remoteEvent.recurrenceType
-                    );
-                    
-                    if (localId > 0) {
-                        insertedCount++;
-                        Log.d(TAG, "Inserted remote event: " + remoteEvent.name +
-                                " (remote_id: " + remoteEvent.remoteId + ")");
+            // Walk down the tree, level by level, collecting mismatched leaf buckets
+            List<Integer> frontier = new ArrayList<>();
+            frontier.add(EventHashTree.ROOT);
+            List<Integer> mismatchedBuckets = new ArrayList<>();
+
+            while (!frontier.isEmpty()) {
+                Map<Integer, Long> remoteHashes = ApiService.fetchTreeNodes(frontier);
+                if (remoteHashes == null) {
+                    Log.d(TAG, "Server does not support reconciliation, using manifest download");
+                    return downloadRemoteEvents();
+                }
+
+                List<Integer> next = new ArrayList<>();
+                for (Integer node : frontier) {
+                    Long remoteHash = remoteHashes.get(node);
+                    if (remoteHash != null && remoteHash == localTree.hash(node)) {
+                        continue;
+                    }
+                    if (EventHashTree.isLeaf(node)) {
+                        mismatchedBuckets.add(EventHashTree.bucketOfLeaf(node));
+                    } else {
+                        next.add(2 * node);
+                        next.add(2 * node + 1);
                     }
-                } else {
-                    Log.d(TAG, "Event already exists: " + remoteEvent.remoteId);
                 }
+                frontier = next;
             }
 
-            Log.d(TAG, "Inserted " + insertedCount + " new events from server");
+            if (mismatchedBuckets.isEmpty()) {
+                Log.d(TAG, "Reconcile: local state matches server");
+                return true;
+            }
+
+            Log.d(TAG, "Reconcile: " + mismatchedBuckets.size() + " mismatched buckets");
+
+            List<ApiService.ManifestEntry> remoteManifest =
+                    ApiService.downloadManifestForBuckets(mismatchedBuckets);
+            if (remoteManifest == null) {
+                return false;
+            }
+
+            // Local versions for rows in the mismatched buckets only
+            Set<Integer> bucketSet = new HashSet<>(mismatchedBuckets);
+            Map<String, Long> localVersions = new HashMap<>();
+            List<EventHashTree.Entry> localInBuckets = new ArrayList<>();
+            for (EventHashTree.Entry entry : localEntries) {
+                localVersions.put(entry.remoteId, entry.version);
+                if (bucketSet.contains(EventHashTree.bucketOf(entry.date))) {
+                    localInBuckets.add(entry);
+                }
+            }
+
+            Set<String> remoteIds = new HashSet<>();
+            List<String> changedIds = new ArrayList<>();
+            for (ApiService.ManifestEntry entry : remoteManifest) {
+                remoteIds.add(entry.remoteId);
+                Long localVersion = localVersions.get(entry.remoteId);
+                if (localVersion == null || localVersion != entry.version) {
+                    changedIds.add(entry.remoteId);
+                }
+            }
+
+            // Synced rows in a drifted bucket that the server no longer lists are gone remotely
+            List<String> removedIds = new ArrayList<>();
+            for (EventHashTree.Entry entry : localInBuckets) {
+                if (entry.synced && !remoteIds.contains(entry.remoteId)) {
+                    removedIds.add(entry.remoteId);
+                }
+            }
+
+            int appliedCount = fetchAndApply(changedIds);
+            int deletedCount = onDbThread(() -> db.deleteSyncedEventsByRemoteId(removedIds));
+
+            Log.d(TAG, "Reconcile: applied " + appliedCount + ", deleted " + deletedCount);
             return true;
 
         } catch (Exception e) {
-            Log.e(TAG, "Error during download", e);
+            Log.e(TAG, "Error during reconciliation", e);
             return false;
         }
     }
 
     /**
-     * Get last sync timestamp from database.
-     * 
-     * @return timestamp in milliseconds, or 0 if never synced
+     * Ask the next sync to run anti-entropy reconciliation instead of the
+     * incremental download (e.g. after restoring a backup).
      */
-    public long getLastSyncTimestamp() {
-        return db.getLastSyncTimestamp();
+    public void requestReconciliation() {
+        // Own helper: the sync's may be in use on another thread
+        executors.db().execute(() -> new DatabaseHelper(context).setReconcileRequested(true));
     }
 
     /**
-     * Clean up resources.
+     * Legacy download path for servers without a manifest: pull every event body,
+     * then apply only the ones that are new or have a different version locally.
      */
-    public void shutdown() {
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
+    private boolean downloadAllRemoteEvents() {
+        List<ApiService.RemoteEvent> remoteEvents = ApiService.downloadEvents();
+
+        if (remoteEvents.isEmpty()) {
+            Log.d(TAG, "No remote events to download");
+            return true; // Nothing to download is considered success
+        }
+
+        Log.d(TAG, "Downloaded " + remoteEvents.size() + " remote events");
+
+        Map<String, Long> localVersions = db.getRemoteVersions();
+        List<ApiService.RemoteEvent> changed = new ArrayList<>();
+        for (ApiService.RemoteEvent remoteEvent : remoteEvents) {
+            Long localVersion = localVersions.get(remoteEvent.remoteId);
+            if (localVersion == null || localVersion != remoteEvent.version) {
+                changed.add(remoteEvent);
+            }
         }
+
+        int appliedCount = applyOnDbThread(changed);
+        Log.d(TAG, "Applied " + appliedCount + " new or changed events from server");
+        return true;
+    }
+
+    /**
+     * Number of merge conflicts waiting for review.
+     */
+    public int getUnresolvedConflictCount() {
+        return db.getUnresolvedConflicts().size();
+    }
+
+    /**
+     * Get last sync timestamp from database.
+     * 
+     * @return timestamp in milliseconds, or 0 if never synced
+     */
+    public long getLastSyncTimestamp() {
+        return db.getLastSyncTimestamp();
     }
 }